@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Represents a remote action that is started using the asynchronous gRPC service stub and reports
+ * its results to the given observer.
+ *
+ * @param <T> the type of the results produced by this action
+ */
+@FunctionalInterface
+public interface AsyncRemoteAction<T> {
+  /**
+   * Starts a remote action using the provided asynchronous gRPC service stub.
+   *
+   * @param stub the asynchronous gRPC service stub used to start the remote action
+   * @param observer the observer receiving the results of the remote action
+   */
+  void apply(XmlDbServiceGrpc.XmlDbServiceStub stub, StreamObserver<T> observer);
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.xmldb.api.base.ErrorCodes.INVALID_RESOURCE;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.ChildCollectionName;
+import org.xmldb.api.grpc.Count;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.ResourceType;
+
+/**
+ * A non-blocking view of a {@link RemoteCollection}. The operations mirror those of the collection
+ * but return a {@link CompletableFuture} instead of waiting for the server response, allowing to
+ * issue many concurrent calls from a few threads.
+ * <p>
+ * The returned futures complete on a thread of the gRPC channel, dependent actions should therefore
+ * not block. A failed operation completes its future exceptionally with an {@link XMLDBException}.
+ */
+public final class AsyncRemoteCollection {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRemoteCollection.class);
+
+  private final RemoteCollection collection;
+  private final RemoteClient remoteClient;
+  private final HandleId collectionHandle;
+
+  AsyncRemoteCollection(RemoteCollection collection, RemoteClient remoteClient,
+      HandleId collectionHandle) {
+    this.collection = collection;
+    this.remoteClient = remoteClient;
+    this.collectionHandle = collectionHandle;
+  }
+
+  @FunctionalInterface
+  private interface ResultFunction<T, R> {
+    R apply(T value) throws XMLDBException;
+  }
+
+  private static <T, R> CompletableFuture<R> map(CompletableFuture<T> future,
+      ResultFunction<T, R> function) {
+    return future.thenCompose(value -> {
+      try {
+        return CompletableFuture.completedFuture(function.apply(value));
+      } catch (XMLDBException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    });
+  }
+
+  private static int count(Count count) throws XMLDBException {
+    try {
+      return Math.toIntExact(count.getCount());
+    } catch (ArithmeticException e) {
+      throw new XMLDBException(VENDOR_ERROR, "Count exceeds the int range: " + count.getCount(), e);
+    }
+  }
+
+  /**
+   * Returns the collection this view belongs to.
+   *
+   * @return the remote collection
+   */
+  public RemoteCollection collection() {
+    return collection;
+  }
+
+  /**
+   * Returns the number of resources of the collection.
+   *
+   * @return the future of the resource count
+   * @see RemoteCollection#getResourceCount()
+   */
+  public CompletableFuture<Integer> getResourceCount() {
+    LOGGER.debug("getResourceCount()");
+    return map(remoteClient.resourceCountAsync(collectionHandle), AsyncRemoteCollection::count);
+  }
+
+  /**
+   * Returns the ids of the resources of the collection.
+   *
+   * @return the future of the resource ids
+   * @see RemoteCollection#listResources()
+   */
+  public CompletableFuture<List<String>> listResources() {
+    LOGGER.debug("listResources()");
+    return remoteClient.listResourcesAsync(collectionHandle)
+        .thenApply(ids -> ids.stream().map(ResourceId::getResourceId).toList());
+  }
+
+  /**
+   * Returns the number of child collections of the collection.
+   *
+   * @return the future of the child collection count
+   * @see RemoteCollection#getChildCollectionCount()
+   */
+  public CompletableFuture<Integer> getChildCollectionCount() {
+    LOGGER.debug("getChildCollectionCount()");
+    return map(remoteClient.collectionCountAsync(collectionHandle), AsyncRemoteCollection::count);
+  }
+
+  /**
+   * Returns the names of the child collections of the collection.
+   *
+   * @return the future of the child collection names
+   * @see RemoteCollection#listChildCollections()
+   */
+  public CompletableFuture<List<String>> listChildCollections() {
+    LOGGER.debug("listChildCollections()");
+    return remoteClient.childCollectionsAsync(collectionHandle)
+        .thenApply(names -> names.stream().map(ChildCollectionName::getChildName).toList());
+  }
+
+  /**
+   * Creates a new unique id for a resource of the collection. The id is taken from the blocks of
+   * ids shared with {@link RemoteCollection#createId()}.
+   *
+   * @return the future of the new id
+   * @see RemoteCollection#createId()
+   */
+  public CompletableFuture<String> createId() {
+    LOGGER.debug("createId()");
+    return collection.createIdAsync();
+  }
+
+  /**
+   * Opens the resource with the given id.
+   *
+   * @param id the id of the resource
+   * @return the future of the opened resource
+   * @see RemoteCollection#getResource(String)
+   */
+  public CompletableFuture<Resource> getResource(String id) {
+    LOGGER.debug("getResource({})", id);
+    return map(remoteClient.openResourceAsync(collectionHandle, id),
+        resourceMeta -> collection.openedResource(id, resourceMeta));
+  }
+
+  /**
+   * Creates a new empty resource of the given type. A new id is created if the given id is
+   * {@code null} or empty. The resource is created on the server once it gets stored.
+   *
+   * @param id the id of the resource, may be {@code null}
+   * @param type the type of the resource
+   * @param <R> the resource type
+   * @return the future of the new resource
+   * @see RemoteCollection#createResource(String, Class)
+   */
+  public <R extends Resource> CompletableFuture<R> createResource(String id, Class<R> type) {
+    LOGGER.debug("createResource({}, {})", id, type);
+    final ResourceType resourceType;
+    try {
+      resourceType = RemoteCollection.resourceTypeOf(type);
+    } catch (XMLDBException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    final CompletableFuture<String> resourceId = id == null || id.isEmpty()
+        ? collection.createIdAsync()
+        : CompletableFuture.completedFuture(id);
+    return map(resourceId, newId -> type.cast(collection.pendingResource(newId, resourceType)));
+  }
+
+  /**
+   * Removes the given resource from the collection.
+   *
+   * @param resource the resource to be removed
+   * @return the future completed once the resource was removed
+   * @see RemoteCollection#removeResource(Resource)
+   */
+  public CompletableFuture<Void> removeResource(Resource resource) {
+    LOGGER.debug("removeResource() with {}", resource);
+    if (resource instanceof RemoteBaseResource baseResource) {
+      if (baseResource.pendingCreation() != null) {
+        return CompletableFuture.completedFuture(null);
+      }
+      collection.invalidateDocument(baseResource.getId());
+      return remoteClient.removeResourceAsync(baseResource.getResourceMeta().getResourceId())
+          .thenApply(empty -> null);
+    }
+    return CompletableFuture.failedFuture(new XMLDBException(INVALID_RESOURCE));
+  }
+}
@@ -25,6 +25,10 @@ import io.grpc.Metadata;
  * The {@code AuthenticationCredentials} class is a concrete implementation of
  * {@code CallCredentials}. It is used to apply authentication metadata to gRPC requests. This class
  * primarily works with a supplier to fetch authentication tokens dynamically for each request.
+ * <p>
+ * The supplier is invoked on the executor passed by gRPC, which is the executor of the channel. If
+ * the channel runs on virtual threads, a supplier blocking on I/O only parks a virtual thread and
+ * must therefore not use {@code synchronized} blocks to guard its I/O.
  */
 public final class AuthenticationCredentials extends CallCredentials {
   private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationCredentials.class);
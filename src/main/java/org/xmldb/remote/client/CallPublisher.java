@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.grpc.Deadline;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+
+/**
+ * A {@link Flow.Publisher} of the values of a server streaming call. Every subscription starts a
+ * new call on the asynchronous stub, bounded by the deadline supplied at subscription time. Values
+ * are only requested from the server as demanded by the subscriber, so that a slow subscriber
+ * applies backpressure through gRPC flow control, and cancelling the subscription cancels the
+ * call.
+ * <p>
+ * Failures of the call are signalled as {@link org.xmldb.api.base.XMLDBException}, a failure of the
+ * mapper cancels the call and is signalled as thrown. Signals are delivered on a thread of the gRPC
+ * channel. The subscription may be used from any thread, its calls are serialized before reaching
+ * the call, which is not thread safe.
+ *
+ * @param <T> the type of the values received from the server
+ * @param <R> the type of the published values
+ */
+final class CallPublisher<T, R> implements Flow.Publisher<R> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CallPublisher.class);
+
+  private final RemoteClient remoteClient;
+  private final Supplier<Deadline> deadline;
+  private final AsyncRemoteAction<T> action;
+  private final Function<? super T, ? extends R> mapper;
+
+  CallPublisher(RemoteClient remoteClient, Supplier<Deadline> deadline,
+      AsyncRemoteAction<T> action, Function<? super T, ? extends R> mapper) {
+    this.remoteClient = remoteClient;
+    this.deadline = deadline;
+    this.action = action;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super R> subscriber) {
+    final CallSubscription subscription = new CallSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    remoteClient.withAsyncStub(deadline.get(), action, subscription);
+    subscription.started();
+  }
+
+  private final class CallSubscription
+      implements Flow.Subscription, ClientResponseObserver<Object, T> {
+    // further demand is passed to the call once the outstanding demand dropped below
+    private static final long REFILL_THRESHOLD = Integer.MAX_VALUE / 2;
+
+    private final Flow.Subscriber<? super R> subscriber;
+    // serializes all use of the call, which is not thread safe
+    private final ReentrantLock lock;
+
+    private ClientCallStreamObserver<Object> requestStream;
+    private boolean started;
+    private long pendingDemand;
+    private long outstandingDemand;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private volatile boolean done;
+
+    CallSubscription(Flow.Subscriber<? super R> subscriber) {
+      this.subscriber = subscriber;
+      this.lock = new ReentrantLock();
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> stream) {
+      stream.disableAutoRequestWithInitial(0);
+      lock.lock();
+      try {
+        requestStream = stream;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void started() {
+      lock.lock();
+      try {
+        started = true;
+        if (cancelled) {
+          cancelCall();
+        } else {
+          requestPending();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException("Non-positive demand: " + n));
+        return;
+      }
+      lock.lock();
+      try {
+        final long sum = pendingDemand + n;
+        pendingDemand = sum < 0 ? Long.MAX_VALUE : sum;
+        requestPending();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Passes the pending demand to the call, at most as much as the call accepts at once. The
+     * remainder is kept until the outstanding demand has been consumed far enough. Must be called
+     * holding the lock.
+     */
+    private void requestPending() {
+      if (!started || cancelled || requestStream == null || outstandingDemand > REFILL_THRESHOLD) {
+        return;
+      }
+      final long granted = Math.min(pendingDemand, Integer.MAX_VALUE - outstandingDemand);
+      if (granted > 0) {
+        pendingDemand -= granted;
+        outstandingDemand += granted;
+        requestStream.request((int) granted);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      lock.lock();
+      try {
+        if (!cancelled) {
+          LOGGER.debug("cancel()");
+          cancelled = true;
+          cancelCall();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Cancels the subscription, signalling the given failure once the call has been cancelled.
+     */
+    private void fail(Throwable cause) {
+      failure = cause;
+      cancel();
+    }
+
+    /**
+     * Cancels the call if already started. Must be called holding the lock.
+     */
+    private void cancelCall() {
+      if (started && requestStream != null && !done) {
+        requestStream.cancel("Subscription cancelled", failure);
+      }
+    }
+
+    @Override
+    public void onNext(T value) {
+      if (cancelled) {
+        return;
+      }
+      lock.lock();
+      try {
+        outstandingDemand--;
+        requestPending();
+      } finally {
+        lock.unlock();
+      }
+      final R mapped;
+      try {
+        mapped = mapper.apply(value);
+      } catch (RuntimeException e) {
+        fail(e);
+        return;
+      }
+      subscriber.onNext(mapped);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      done = true;
+      final Throwable cause = failure;
+      if (cause != null) {
+        subscriber.onError(cause);
+      } else if (!cancelled) {
+        subscriber.onError(RemoteClient.handleCallFailure(throwable));
+      }
+    }
+
+    @Override
+    public void onCompleted() {
+      done = true;
+      if (!cancelled) {
+        subscriber.onComplete();
+      }
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.xmldb.remote.client.Constants.CHANNEL_IDLE_TIMEOUT;
+import static org.xmldb.remote.client.Constants.DEFAULT_CHANNEL_IDLE_TIMEOUT;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.grpc.ChannelCredentials;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+
+/**
+ * Registry of shared gRPC channels. A channel is shared by all users connecting to the same host
+ * and port with the same credentials and channel settings and is reference counted by the
+ * {@link RemoteClient} instances using it. Once the last reference has been released, the channel
+ * is shut down gracefully after the idle period configured by the
+ * {@link Constants#CHANNEL_IDLE_TIMEOUT} property.
+ */
+final class ChannelRegistry {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChannelRegistry.class);
+  private static final ChannelRegistry INSTANCE =
+      new ChannelRegistry(InsecureChannelCredentials::create);
+  private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("xmldb-grpc-channel-reaper").daemon().factory());
+
+  private final Supplier<ChannelCredentials> credentialsSupplier;
+  private final Map<ChannelKey, SharedChannel> channels;
+
+  ChannelRegistry(Supplier<ChannelCredentials> credentialsSupplier) {
+    this.credentialsSupplier = credentialsSupplier;
+    this.channels = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the process wide channel registry.
+   *
+   * @return the shared registry instance
+   */
+  static ChannelRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the scheduler shutting down idle channels, which is shared for other housekeeping tasks
+   * of the client. Scheduled tasks must not block.
+   *
+   * @return the shared housekeeping scheduler
+   */
+  static ScheduledExecutorService reaper() {
+    return REAPER;
+  }
+
+  /**
+   * Acquires a reference to the channel for the given connection, opening a new one if no channel
+   * is registered yet. Each call must be balanced by a call to {@link #release(SharedChannel)}.
+   *
+   * @param connectionInfo the connection details
+   * @return the shared channel
+   */
+  SharedChannel acquire(ConnectionInfo connectionInfo) {
+    final ChannelKey key = key(connectionInfo);
+    return channels.compute(key, (k, existing) -> {
+      final SharedChannel shared;
+      if (existing == null || existing.channel.isShutdown()) {
+        LOGGER.debug("Opening channel to {}", k);
+        shared = new SharedChannel(k, connectionInfo.openChannel(credentialsSupplier),
+            k.idleTimeout());
+      } else {
+        shared = existing;
+      }
+      shared.retain();
+      return shared;
+    });
+  }
+
+  /**
+   * Releases a reference previously obtained by {@link #acquire(ConnectionInfo)}. Releasing the
+   * last reference schedules the shutdown of the channel after its idle period.
+   *
+   * @param sharedChannel the shared channel to be released
+   */
+  void release(SharedChannel sharedChannel) {
+    channels.computeIfPresent(sharedChannel.key, (key, shared) -> {
+      if (shared != sharedChannel || --shared.references > 0) {
+        return shared;
+      }
+      if (shared.idleTimeout.isZero() || shared.idleTimeout.isNegative()) {
+        shared.shutdown();
+        return null;
+      }
+      shared.pendingShutdown =
+          REAPER.schedule(() -> expire(shared), shared.idleTimeout.toMillis(), MILLISECONDS);
+      return shared;
+    });
+  }
+
+  /**
+   * Returns whether a channel is registered for the given connection, including a released one
+   * waiting for its idle period to expire.
+   *
+   * @param connectionInfo the connection details
+   * @return {@code true} if a channel is registered
+   */
+  boolean isRegistered(ConnectionInfo connectionInfo) {
+    return channels.containsKey(key(connectionInfo));
+  }
+
+  private static ChannelKey key(ConnectionInfo connectionInfo) {
+    return new ChannelKey(connectionInfo.host(), connectionInfo.port(),
+        connectionInfo.authentication(), connectionInfo.virtualThreads(),
+        connectionInfo.maxInboundMessageSize(),
+        connectionInfo.durationProperty(CHANNEL_IDLE_TIMEOUT, DEFAULT_CHANNEL_IDLE_TIMEOUT));
+  }
+
+  private void expire(SharedChannel sharedChannel) {
+    channels.computeIfPresent(sharedChannel.key, (key, shared) -> {
+      if (shared == sharedChannel && shared.references == 0) {
+        shared.shutdown();
+        return null;
+      }
+      return shared;
+    });
+  }
+
+  /**
+   * Identifies a shared channel by its endpoint, credentials and every setting applied when
+   * building it, so that a channel is only shared by connections agreeing on all of them. The
+   * codec registries are process wide and therefore the same for all channels.
+   */
+  private record ChannelKey(String host, int port, String authentication, boolean virtualThreads,
+      int maxInboundMessageSize, Duration idleTimeout) {
+    @Override
+    public String toString() {
+      return "%s:%d".formatted(host, port);
+    }
+  }
+
+  /**
+   * A reference counted channel registered within a {@link ChannelRegistry}. The mutable state is
+   * only modified within the atomic map operations of the registry.
+   */
+  static final class SharedChannel {
+    private final ChannelKey key;
+    private final ManagedChannel channel;
+    private final Duration idleTimeout;
+
+    private int references;
+    private ScheduledFuture<?> pendingShutdown;
+
+    private SharedChannel(ChannelKey key, ManagedChannel channel, Duration idleTimeout) {
+      this.key = key;
+      this.channel = channel;
+      this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the underlying gRPC channel.
+     *
+     * @return the managed channel
+     */
+    ManagedChannel channel() {
+      return channel;
+    }
+
+    private void retain() {
+      references++;
+      if (pendingShutdown != null) {
+        pendingShutdown.cancel(false);
+        pendingShutdown = null;
+      }
+    }
+
+    private void shutdown() {
+      LOGGER.debug("Shutting down channel to {}", key);
+      channel.shutdown();
+    }
+  }
+}
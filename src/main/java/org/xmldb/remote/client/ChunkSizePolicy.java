@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.xmldb.remote.client.Constants.CHUNK_SIZE;
+import static org.xmldb.remote.client.Constants.DEFAULT_BUFFER_SIZE;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.grpc.ResourceMeta;
+
+/**
+ * Determines the chunk size used to transfer resource content. The policy either uses a fixed chunk
+ * size or adapts the chunk size to the observed transfer throughput and the resource size, limited
+ * by the maximum message size of the channel.
+ * <p>
+ * In adaptive mode the chunk size is doubled as long as a larger chunk size improves the
+ * throughput, and halved if the throughput drops significantly.
+ */
+final class ChunkSizePolicy {
+  /**
+   * The property value enabling the adaptive chunk size.
+   */
+  static final String ADAPTIVE = "adaptive";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChunkSizePolicy.class);
+  private static final int MESSAGE_OVERHEAD = 1024;
+  private static final int ADAPTIVE_INITIAL_SIZE = 16 * DEFAULT_BUFFER_SIZE;
+  private static final int TARGET_CHUNK_COUNT = 256;
+  private static final int MIN_SAMPLE_CHUNKS = 4;
+
+  private final String setting;
+  private final int maximumSize;
+  private final AtomicReference<Sample> state;
+
+  private ChunkSizePolicy(String setting, int fixedSize, int maximumSize) {
+    this.setting = setting;
+    this.maximumSize = maximumSize;
+    if (ADAPTIVE.equals(setting)) {
+      state = new AtomicReference<>(new Sample(Math.min(ADAPTIVE_INITIAL_SIZE, maximumSize), 0));
+    } else {
+      state = new AtomicReference<>(new Sample(fixedSize, -1));
+    }
+  }
+
+  /**
+   * Creates the chunk size policy defined by the {@link Constants#CHUNK_SIZE} property of the given
+   * connection.
+   *
+   * @param connectionInfo the connection details
+   * @return the chunk size policy of the connection
+   */
+  static ChunkSizePolicy of(ConnectionInfo connectionInfo) {
+    return of(connectionInfo.info().getProperty(CHUNK_SIZE),
+        connectionInfo.maxInboundMessageSize() - MESSAGE_OVERHEAD);
+  }
+
+  /**
+   * Creates a chunk size policy for the given setting, which is either a size in bytes or
+   * {@value #ADAPTIVE}.
+   *
+   * @param setting the chunk size setting, or {@code null} to use the default chunk size
+   * @param maximumSize the maximum chunk size
+   * @return the chunk size policy
+   * @throws IllegalArgumentException if the setting is neither a positive number nor
+   *         {@value #ADAPTIVE}
+   */
+  static ChunkSizePolicy of(String setting, int maximumSize) {
+    final int limit = Math.max(DEFAULT_BUFFER_SIZE, maximumSize);
+    if (setting == null || setting.isBlank()) {
+      return new ChunkSizePolicy(null, DEFAULT_BUFFER_SIZE, limit);
+    }
+    final String value = setting.strip();
+    if (ADAPTIVE.equalsIgnoreCase(value)) {
+      return new ChunkSizePolicy(ADAPTIVE, 0, limit);
+    }
+    final long size = Long.parseLong(value);
+    if (size <= 0) {
+      throw new IllegalArgumentException("Non-positive chunk size: " + value);
+    }
+    return new ChunkSizePolicy(value, (int) Math.min(size, limit), limit);
+  }
+
+  /**
+   * Returns the policy for the given setting, reusing this policy and its adaptive state if the
+   * setting is not defined or matches the setting of this policy.
+   *
+   * @param override the chunk size setting to be used, may be {@code null}
+   * @return the policy for the given setting
+   */
+  ChunkSizePolicy withSetting(String override) {
+    if (override == null || override.isBlank() || override.strip().equalsIgnoreCase(setting)) {
+      return this;
+    }
+    return of(override, maximumSize);
+  }
+
+  /**
+   * Returns whether the chunk size adapts to the observed throughput.
+   *
+   * @return {@code true} if in adaptive mode
+   */
+  boolean isAdaptive() {
+    return ADAPTIVE.equals(setting);
+  }
+
+  /**
+   * Returns the chunk size to be used to transfer the content of the given resource.
+   *
+   * @param resourceMeta the metadata of the resource to be transferred
+   * @return the chunk size in bytes
+   */
+  int chunkSize(ResourceMeta resourceMeta) {
+    final int current = state.get().chunkSize();
+    if (!isAdaptive() || !resourceMeta.hasSize()) {
+      return current;
+    }
+    final long size = resourceMeta.getSize();
+    if (size <= current) {
+      return (int) Math.max(DEFAULT_BUFFER_SIZE, size);
+    }
+    return (int) Math.min(maximumSize, Math.max(current, size / TARGET_CHUNK_COUNT));
+  }
+
+  /**
+   * Records the throughput observed transferring content with the given chunk size. This is used
+   * in adaptive mode to determine the chunk size of subsequent transfers.
+   *
+   * @param chunkSize the chunk size used
+   * @param bytes the number of bytes transferred
+   * @param nanos the transfer duration in nanoseconds
+   */
+  void recordTransfer(int chunkSize, long bytes, long nanos) {
+    if (!isAdaptive() || nanos <= 0 || bytes < (long) MIN_SAMPLE_CHUNKS * chunkSize) {
+      return;
+    }
+    final double throughput = (double) bytes / nanos;
+    final Sample updated = state.updateAndGet(sample -> {
+      if (chunkSize < sample.chunkSize()) {
+        return sample;
+      } else if (throughput > sample.throughput() * 1.1) {
+        return new Sample(Math.min(maximumSize, sample.chunkSize() * 2), throughput);
+      } else if (throughput < sample.throughput() * 0.5) {
+        return new Sample(Math.max(DEFAULT_BUFFER_SIZE, sample.chunkSize() / 2), throughput);
+      }
+      return new Sample(sample.chunkSize(), Math.max(throughput, sample.throughput()));
+    });
+    LOGGER.trace("Adaptive chunk size {} after {} bytes/ns", updated.chunkSize(), throughput);
+  }
+
+  @Override
+  public String toString() {
+    return "ChunkSizePolicy(%s)".formatted(isAdaptive() ? ADAPTIVE : state.get().chunkSize());
+  }
+
+  private record Sample(int chunkSize, double throughput) {
+  }
+}
@@ -10,6 +10,7 @@
  */
 package org.xmldb.remote.client;
 
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
@@ -18,21 +19,48 @@ import java.util.concurrent.TimeoutException;
 import io.grpc.StatusException;
 import io.grpc.stub.BlockingClientCall;
 
-final class ClientCallIterator<T> implements Iterator<T> {
+/**
+ * Iterates over the messages of a server streaming call. Each message must arrive within the read
+ * timeout, otherwise the call is cancelled. Closing the iterator before all messages have been read
+ * cancels the call, so that an abandoned stream stops consuming server and network resources.
+ *
+ * @param <T> the type of the messages
+ */
+final class ClientCallIterator<T> implements Iterator<T>, AutoCloseable {
   private final BlockingClientCall<?, T> blockingClientCall;
+  private final long readTimeoutNanos;
 
-  ClientCallIterator(BlockingClientCall<?, T> blockingClientCall) {
+  private T next;
+  private boolean finished;
+
+  ClientCallIterator(BlockingClientCall<?, T> blockingClientCall, Duration readTimeout) {
     this.blockingClientCall = blockingClientCall;
+    this.readTimeoutNanos = readTimeout.toNanos();
   }
 
   @Override
   public boolean hasNext() {
+    if (next != null) {
+      return true;
+    } else if (finished) {
+      return false;
+    }
     try {
-      return blockingClientCall.hasNext();
+      next = readTimeoutNanos > 0
+          ? blockingClientCall.read(readTimeoutNanos, TimeUnit.NANOSECONDS)
+          : blockingClientCall.read();
+      finished = next == null;
+      return !finished;
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      close();
       throw new IllegalStateException(e);
+    } catch (TimeoutException e) {
+      close();
+      throw new IllegalStateException("No message received within %d ms"
+          .formatted(TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos)), e);
     } catch (StatusException e) {
+      finished = true;
       throw new IllegalStateException(e);
     }
   }
@@ -40,16 +68,23 @@ final class ClientCallIterator<T> implements Iterator<T> {
   @Override
   public T next() {
     if (hasNext()) {
-      try {
-        return blockingClientCall.read(1, TimeUnit.SECONDS);
-      } catch (InterruptedException | TimeoutException e) {
-        Thread.currentThread().interrupt();
-        throw new IllegalStateException(e);
-      } catch (StatusException e) {
-        throw new IllegalStateException(e);
-      }
+      final T current = next;
+      next = null;
+      return current;
     } else {
       throw new NoSuchElementException();
     }
   }
+
+  /**
+   * Cancels the call if not all messages have been read.
+   */
+  @Override
+  public void close() {
+    next = null;
+    if (!finished) {
+      finished = true;
+      blockingClientCall.cancel("Iterator closed", null);
+    }
+  }
 }
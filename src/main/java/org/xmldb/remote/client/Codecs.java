@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+
+/**
+ * Holds the message compression codecs known to the client. Next to gzip, codecs like zstd or LZ4
+ * are made available by registering an implementation of {@link Codec} as service provider of a
+ * jar on the class path.
+ */
+final class Codecs {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Codecs.class);
+
+  private static final CompressorRegistry COMPRESSORS;
+  private static final DecompressorRegistry DECOMPRESSORS;
+
+  static {
+    final CompressorRegistry compressors = CompressorRegistry.newEmptyInstance();
+    compressors.register(Codec.Identity.NONE);
+    compressors.register(new Codec.Gzip());
+    DecompressorRegistry decompressors = DecompressorRegistry.getDefaultInstance();
+    for (ServiceLoader.Provider<Codec> provider : ServiceLoader
+        .load(Codec.class, Codecs.class.getClassLoader()).stream().toList()) {
+      try {
+        final Codec codec = provider.get();
+        compressors.register(codec);
+        decompressors = decompressors.with(codec, true);
+        LOGGER.debug("Registered codec {}", codec.getMessageEncoding());
+      } catch (ServiceConfigurationError e) {
+        LOGGER.warn("Failed to load codec {}", provider.type().getName(), e);
+      }
+    }
+    COMPRESSORS = compressors;
+    DECOMPRESSORS = decompressors;
+  }
+
+  private Codecs() {}
+
+  /**
+   * Returns the registry of the compressors of outgoing messages.
+   *
+   * @return the compressor registry
+   */
+  static CompressorRegistry compressors() {
+    return COMPRESSORS;
+  }
+
+  /**
+   * Returns the registry of the decompressors of incoming messages, which are advertised to the
+   * server as accepted encodings.
+   *
+   * @return the decompressor registry
+   */
+  static DecompressorRegistry decompressors() {
+    return DECOMPRESSORS;
+  }
+
+  /**
+   * Returns whether messages can be compressed with the given encoding.
+   *
+   * @param messageEncoding the name of the message encoding
+   * @return {@code true} if a compressor is registered for the encoding
+   */
+  static boolean isSupported(String messageEncoding) {
+    return COMPRESSORS.lookupCompressor(messageEncoding) != null;
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CollectionMeta;
+import org.xmldb.api.grpc.HandleId;
+
+/**
+ * Caches the server side handles of opened child collections by their full path. A cached handle is
+ * reference counted by the collections using it and is closed on the server once it has not been
+ * referenced for its time to live. A time to live of zero shares handles only between collections
+ * open at the same time.
+ * <p>
+ * Expired handles are removed whenever the cache is used, and by a sweep scheduled for the time the
+ * next idle handle expires, so that handles are closed on the server even if the client stays
+ * idle.
+ */
+final class CollectionHandleCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CollectionHandleCache.class);
+
+  /**
+   * Opens the collection for a path not found in the cache.
+   */
+  @FunctionalInterface
+  interface Loader {
+    /**
+     * Opens the collection.
+     *
+     * @return the metadata of the opened collection
+     * @throws XMLDBException if the collection could not be opened
+     */
+    CollectionMeta load() throws XMLDBException;
+  }
+
+  /**
+   * Closes a collection handle on the server.
+   */
+  @FunctionalInterface
+  interface Closer {
+    /**
+     * Closes the given handle.
+     *
+     * @param collectionHandle the handle to be closed
+     * @throws XMLDBException if the handle could not be closed
+     */
+    void close(HandleId collectionHandle) throws XMLDBException;
+  }
+
+  private final ReentrantLock lock;
+  private final Map<String, CachedHandle> handles;
+  private final long timeToLiveNanos;
+  private final Closer closer;
+  private final ScheduledExecutorService scheduler;
+
+  private ScheduledFuture<?> pendingSweep;
+
+  CollectionHandleCache(Duration timeToLive, Closer closer) {
+    this(timeToLive, closer, ChannelRegistry.reaper());
+  }
+
+  CollectionHandleCache(Duration timeToLive, Closer closer, ScheduledExecutorService scheduler) {
+    this.lock = new ReentrantLock();
+    this.handles = new HashMap<>();
+    this.timeToLiveNanos = Math.max(0, timeToLive.toNanos());
+    this.closer = closer;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Returns a reference to the handle of the collection with the given path, using the loader to
+   * open the collection if no valid handle is cached. The reference must be released by calling
+   * {@link #release(CachedHandle)}.
+   *
+   * @param path the full path of the collection
+   * @param loader the loader opening the collection
+   * @return the cached handle, or {@code null} if the collection does not exist
+   * @throws XMLDBException if the collection could not be opened
+   */
+  CachedHandle acquire(String path, Loader loader) throws XMLDBException {
+    final List<HandleId> expired = new ArrayList<>();
+    lock.lock();
+    try {
+      final long now = System.nanoTime();
+      removeExpired(now, expired);
+      final CachedHandle cached = handles.get(path);
+      if (cached != null) {
+        cached.references++;
+        return cached;
+      }
+    } finally {
+      lock.unlock();
+      closeQuietly(expired);
+    }
+    final CollectionMeta collectionMeta = loader.load();
+    if (collectionMeta.getName().isEmpty()) {
+      return null;
+    }
+    final CachedHandle cached;
+    lock.lock();
+    try {
+      cached = handles.get(path);
+      if (cached == null) {
+        final CachedHandle loaded = new CachedHandle(collectionMeta);
+        handles.put(path, loaded);
+        return loaded;
+      }
+      cached.references++;
+    } finally {
+      lock.unlock();
+    }
+    // a concurrent caller opened the same collection meanwhile
+    closeQuietly(List.of(collectionMeta.getCollectionId()));
+    return cached;
+  }
+
+  /**
+   * Releases a reference obtained by {@link #acquire(String, Loader)}. The handle is closed on the
+   * server if it is no longer referenced and the time to live is zero.
+   *
+   * @param cachedHandle the handle to be released
+   * @throws XMLDBException if closing the handle failed
+   */
+  void release(CachedHandle cachedHandle) throws XMLDBException {
+    final List<HandleId> expired = new ArrayList<>();
+    lock.lock();
+    try {
+      final long now = System.nanoTime();
+      if (--cachedHandle.references == 0) {
+        cachedHandle.idleSinceNanos = now;
+      }
+      removeExpired(now, expired);
+      scheduleSweep(now);
+    } finally {
+      lock.unlock();
+    }
+    closeAll(expired);
+  }
+
+  /**
+   * Removes all handles no longer referenced and closes them on the server.
+   */
+  void clear() {
+    final List<HandleId> unused = new ArrayList<>();
+    lock.lock();
+    try {
+      handles.values().removeIf(cachedHandle -> {
+        if (cachedHandle.references == 0) {
+          unused.add(cachedHandle.metaData.getCollectionId());
+          return true;
+        }
+        return false;
+      });
+    } finally {
+      lock.unlock();
+    }
+    closeQuietly(unused);
+  }
+
+  private void scheduleSweep(long now) {
+    if (pendingSweep != null || timeToLiveNanos == 0) {
+      return;
+    }
+    long delay = Long.MAX_VALUE;
+    for (CachedHandle cachedHandle : handles.values()) {
+      if (cachedHandle.references == 0) {
+        delay = Math.min(delay, cachedHandle.idleSinceNanos + timeToLiveNanos - now);
+      }
+    }
+    if (delay != Long.MAX_VALUE) {
+      // the handles are closed by remote calls, which must not block the scheduler
+      pendingSweep = scheduler.schedule(() -> Thread.startVirtualThread(this::sweep),
+          Math.max(0, delay), NANOSECONDS);
+    }
+  }
+
+  private void sweep() {
+    final List<HandleId> expired = new ArrayList<>();
+    lock.lock();
+    try {
+      pendingSweep = null;
+      final long now = System.nanoTime();
+      removeExpired(now, expired);
+      scheduleSweep(now);
+    } finally {
+      lock.unlock();
+    }
+    closeQuietly(expired);
+  }
+
+  private void closeQuietly(List<HandleId> collectionHandles) {
+    try {
+      closeAll(collectionHandles);
+    } catch (XMLDBException e) {
+      LOGGER.warn("Failed to close cached collection handles", e);
+    }
+  }
+
+  private void removeExpired(long now, List<HandleId> expired) {
+    for (Iterator<CachedHandle> iterator = handles.values().iterator(); iterator.hasNext();) {
+      final CachedHandle cachedHandle = iterator.next();
+      if (cachedHandle.references == 0
+          && now - cachedHandle.idleSinceNanos >= timeToLiveNanos) {
+        iterator.remove();
+        expired.add(cachedHandle.metaData.getCollectionId());
+      }
+    }
+  }
+
+  private void closeAll(List<HandleId> collectionHandles) throws XMLDBException {
+    XMLDBException failure = null;
+    for (HandleId collectionHandle : collectionHandles) {
+      try {
+        closer.close(collectionHandle);
+      } catch (XMLDBException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * A reference counted collection handle. The mutable state is guarded by the lock of the owning
+   * cache.
+   */
+  static final class CachedHandle {
+    private final CollectionMeta metaData;
+
+    private int references;
+    private long idleSinceNanos;
+
+    private CachedHandle(CollectionMeta metaData) {
+      this.metaData = metaData;
+      this.references = 1;
+    }
+
+    /**
+     * Returns the metadata of the cached collection.
+     *
+     * @return the collection metadata
+     */
+    CollectionMeta metaData() {
+      return metaData;
+    }
+  }
+}
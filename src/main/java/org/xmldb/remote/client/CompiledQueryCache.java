@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CompileRequest;
+import org.xmldb.api.grpc.HandleId;
+
+/**
+ * A bounded least recently used cache of the server side handles of compiled queries keyed by the
+ * compile request, containing the query text, its language and namespace bindings. Evicted handles
+ * are released on the server. A handle handed out may be evicted while still in use, evaluating it
+ * then fails and the query has to be compiled again.
+ */
+final class CompiledQueryCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompiledQueryCache.class);
+
+  /**
+   * Compiles a query not found in the cache.
+   */
+  @FunctionalInterface
+  interface Compiler {
+    /**
+     * Compiles the given query.
+     *
+     * @param request the query to compile
+     * @return the handle of the compiled query, or {@code null} if the server does not compile
+     *         queries
+     * @throws XMLDBException if the query could not be compiled
+     */
+    HandleId compile(CompileRequest request) throws XMLDBException;
+  }
+
+  /**
+   * Releases a compiled query on the server.
+   */
+  @FunctionalInterface
+  interface Releaser {
+    /**
+     * Releases the given handle.
+     *
+     * @param compiledHandle the handle to be released
+     * @throws XMLDBException if the handle could not be released
+     */
+    void release(HandleId compiledHandle) throws XMLDBException;
+  }
+
+  private final ReentrantLock lock;
+  private final LinkedHashMap<CompileRequest, HandleId> handles;
+  private final int maximumSize;
+  private final Releaser releaser;
+
+  CompiledQueryCache(int maximumSize, Releaser releaser) {
+    this.lock = new ReentrantLock();
+    this.handles = new LinkedHashMap<>(16, 0.75f, true);
+    this.maximumSize = Math.max(0, maximumSize);
+    this.releaser = releaser;
+  }
+
+  /**
+   * Returns the handle of the compiled query, using the compiler to compile it if not cached.
+   *
+   * @param request the query to compile
+   * @param compiler the compiler used for a query not cached
+   * @return the handle of the compiled query, or {@code null} if the cache is disabled or the
+   *         server does not compile queries
+   * @throws XMLDBException if the query could not be compiled
+   */
+  HandleId handle(CompileRequest request, Compiler compiler) throws XMLDBException {
+    if (maximumSize == 0) {
+      return null;
+    }
+    lock.lock();
+    try {
+      final HandleId cached = handles.get(request);
+      if (cached != null) {
+        return cached;
+      }
+    } finally {
+      lock.unlock();
+    }
+    final HandleId compiled = compiler.compile(request);
+    if (compiled == null) {
+      return null;
+    }
+    final List<HandleId> evicted = new ArrayList<>();
+    final HandleId cached;
+    lock.lock();
+    try {
+      cached = handles.putIfAbsent(request, compiled);
+      if (cached == null) {
+        evictExceeding(evicted);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (cached != null) {
+      // a concurrent caller compiled the same query meanwhile
+      evicted.add(compiled);
+    }
+    releaseQuietly(evicted);
+    return cached == null ? compiled : cached;
+  }
+
+  /**
+   * Removes the given handle of the query from the cache, after the server reported it as unknown.
+   * A different handle cached for the query meanwhile is kept.
+   *
+   * @param request the compiled query
+   * @param compiledHandle the handle no longer valid
+   */
+  void invalidate(CompileRequest request, HandleId compiledHandle) {
+    lock.lock();
+    try {
+      handles.remove(request, compiledHandle);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all cached handles and releases them on the server.
+   */
+  void clear() {
+    final List<HandleId> released;
+    lock.lock();
+    try {
+      released = new ArrayList<>(handles.values());
+      handles.clear();
+    } finally {
+      lock.unlock();
+    }
+    releaseQuietly(released);
+  }
+
+  private void evictExceeding(List<HandleId> evicted) {
+    final var iterator = handles.entrySet().iterator();
+    while (handles.size() > maximumSize && iterator.hasNext()) {
+      final Map.Entry<CompileRequest, HandleId> eldest = iterator.next();
+      iterator.remove();
+      LOGGER.debug("Evicting compiled query {}", eldest.getValue());
+      evicted.add(eldest.getValue());
+    }
+  }
+
+  private void releaseQuietly(List<HandleId> compiledHandles) {
+    for (HandleId compiledHandle : compiledHandles) {
+      try {
+        releaser.release(compiledHandle);
+      } catch (XMLDBException e) {
+        LOGGER.warn("Failed to release compiled query {}", compiledHandle, e);
+      }
+    }
+  }
+}
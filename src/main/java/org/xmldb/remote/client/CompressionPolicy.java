@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.xmldb.remote.client.Constants.COMPRESSION;
+import static org.xmldb.remote.client.Constants.COMPRESSION_THRESHOLD;
+import static org.xmldb.remote.client.Constants.DEFAULT_COMPRESSION_THRESHOLD;
+
+import java.util.function.Function;
+
+import io.grpc.stub.AbstractStub;
+
+/**
+ * Determines whether the content of a resource transfer is sent compressed. Metadata calls are
+ * never compressed, as their small messages do not benefit from it.
+ */
+final class CompressionPolicy {
+  private static final CompressionPolicy NONE = new CompressionPolicy(null, 0);
+
+  private final String messageEncoding;
+  private final long threshold;
+
+  private CompressionPolicy(String messageEncoding, long threshold) {
+    this.messageEncoding = messageEncoding;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Creates the compression policy defined by the given settings.
+   *
+   * @param settings the lookup of the property values by name
+   * @return the compression policy
+   * @throws IllegalArgumentException if no codec is registered for the configured compression
+   * @throws NumberFormatException if the threshold is not a valid number
+   */
+  static CompressionPolicy of(Function<String, String> settings) {
+    final String compression = settings.apply(COMPRESSION);
+    if (compression == null || compression.isBlank()) {
+      return NONE;
+    }
+    final String messageEncoding = compression.strip();
+    if (!Codecs.isSupported(messageEncoding)) {
+      throw new IllegalArgumentException("Unsupported compression: " + messageEncoding);
+    }
+    final String threshold = settings.apply(COMPRESSION_THRESHOLD);
+    return new CompressionPolicy(messageEncoding,
+        threshold == null || threshold.isBlank() ? DEFAULT_COMPRESSION_THRESHOLD
+            : Math.max(0, Long.parseLong(threshold.strip())));
+  }
+
+  /**
+   * Returns the given stub set up to compress the transfer of content of the given size.
+   *
+   * @param stub the stub used for the transfer
+   * @param size the content size in bytes, or a negative value if unknown
+   * @param <S> the stub type
+   * @return the stub to be used for the transfer
+   */
+  <S extends AbstractStub<S>> S apply(S stub, long size) {
+    if (messageEncoding == null || (size >= 0 && size < threshold)) {
+      return stub;
+    }
+    return stub.withCompression(messageEncoding);
+  }
+
+  @Override
+  public String toString() {
+    return "CompressionPolicy(%s, threshold=%d)".formatted(messageEncoding, threshold);
+  }
+}
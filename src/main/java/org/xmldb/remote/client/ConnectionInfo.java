@@ -11,16 +11,24 @@
 package org.xmldb.remote.client;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.xmldb.remote.client.Constants.DEFAULT_MAX_INBOUND_MESSAGE_SIZE;
+import static org.xmldb.remote.client.Constants.EXECUTOR;
+import static org.xmldb.remote.client.Constants.EXECUTOR_VIRTUAL;
+import static org.xmldb.remote.client.Constants.MAX_INBOUND_MESSAGE_SIZE;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import io.grpc.ChannelCredentials;
 import io.grpc.Grpc;
 import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
 
 /**
  * Represents connection details for establishing a connection to a remote service or database. This
@@ -33,6 +41,10 @@ import io.grpc.ManagedChannel;
  *        and "password"
  */
 public record ConnectionInfo(String host, int port, String dbPath, Properties info) {
+  // creates a new virtual thread per task and therefore needs no shutdown
+  private static final Executor VIRTUAL_THREAD_EXECUTOR =
+      Executors.newVirtualThreadPerTaskExecutor();
+
   /**
    * Validates that the provided parameters for a {@code ConnectionInfo} object are not null. This
    * constructor ensures that the mandatory fields required to establish a connection are correctly
@@ -71,6 +83,51 @@ public record ConnectionInfo(String host, int port, String dbPath, Properties in
         Base64.getEncoder().encodeToString(authenticationBuilder.toString().getBytes(UTF_8)));
   }
 
+  /**
+   * Returns the long value of the given connection property.
+   *
+   * @param name the name of the property
+   * @param defaultValue the value used if the property is not set
+   * @return the property value or {@code defaultValue} if not defined
+   * @throws NumberFormatException if the property value is not a valid number
+   */
+  long longProperty(String name, long defaultValue) {
+    final String value = info.getProperty(name);
+    return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.strip());
+  }
+
+  /**
+   * Returns the duration of the given connection property, specified in milliseconds.
+   *
+   * @param name the name of the property
+   * @param defaultMillis the milliseconds used if the property is not set
+   * @return the property value as duration
+   * @throws NumberFormatException if the property value is not a valid number
+   */
+  Duration durationProperty(String name, long defaultMillis) {
+    return Duration.ofMillis(longProperty(name, defaultMillis));
+  }
+
+  /**
+   * Returns the maximum size of a message received from the server.
+   *
+   * @return the maximum inbound message size in bytes
+   */
+  int maxInboundMessageSize() {
+    return Math
+        .toIntExact(longProperty(MAX_INBOUND_MESSAGE_SIZE, DEFAULT_MAX_INBOUND_MESSAGE_SIZE));
+  }
+
+  /**
+   * Returns whether the channel uses virtual threads as defined by the {@link Constants#EXECUTOR}
+   * property.
+   *
+   * @return {@code true} if virtual threads are used
+   */
+  boolean virtualThreads() {
+    return EXECUTOR_VIRTUAL.equalsIgnoreCase(info.getProperty(EXECUTOR, "").strip());
+  }
+
   /**
    * Opens a gRPC channel to the specified host and port using insecure channel credentials.
    *
@@ -78,6 +135,22 @@ public record ConnectionInfo(String host, int port, String dbPath, Properties in
    *         remote server.
    */
   ManagedChannel openChannel(Supplier<ChannelCredentials> credentialsSupplier) {
-    return Grpc.newChannelBuilderForAddress(host, port, credentialsSupplier.get()).build();
+    final ManagedChannelBuilder<?> builder =
+        Grpc.newChannelBuilderForAddress(host, port, credentialsSupplier.get());
+    configure(builder);
+    return builder.build();
+  }
+
+  /**
+   * Applies the channel settings of this connection to the given channel builder.
+   *
+   * @param builder the channel builder to configure
+   */
+  void configure(ManagedChannelBuilder<?> builder) {
+    builder.maxInboundMessageSize(maxInboundMessageSize())
+        .compressorRegistry(Codecs.compressors()).decompressorRegistry(Codecs.decompressors());
+    if (virtualThreads()) {
+      builder.executor(VIRTUAL_THREAD_EXECUTOR).offloadExecutor(VIRTUAL_THREAD_EXECUTOR);
+    }
   }
 }
@@ -22,5 +22,255 @@ public final class Constants {
    */
   public static final int DEFAULT_BUFFER_SIZE = 4096;
 
+  /**
+   * Connection property defining the time in milliseconds a shared channel is kept open after the
+   * last root collection using it has been closed. A value of {@code 0} shuts the channel down
+   * immediately.
+   */
+  public static final String CHANNEL_IDLE_TIMEOUT = "channel.idle.timeout";
+
+  /**
+   * The default time in milliseconds an unused shared channel is kept open.
+   */
+  public static final long DEFAULT_CHANNEL_IDLE_TIMEOUT = 30_000;
+
+  /**
+   * Database property defining the maximum number of remote clients kept for reuse by the
+   * {@link RemoteDatabase}. A value of {@code 0} disables the client cache.
+   */
+  public static final String CLIENT_CACHE_SIZE = "client.cache.size";
+
+  /**
+   * The default maximum number of cached remote clients.
+   */
+  public static final int DEFAULT_CLIENT_CACHE_SIZE = 16;
+
+  /**
+   * Connection or collection property defining the chunk size in bytes used to load and store
+   * resource content. The value {@code adaptive} enables a chunk size adapting to
+   * the observed throughput and the resource size. Defaults to {@link #DEFAULT_BUFFER_SIZE}.
+   */
+  public static final String CHUNK_SIZE = "chunk.size";
+
+  /**
+   * Connection property defining the maximum size in bytes of a message received from the server.
+   */
+  public static final String MAX_INBOUND_MESSAGE_SIZE = "max.inbound.message.size";
+
+  /**
+   * The default maximum size of a received message, matching the gRPC default.
+   */
+  public static final int DEFAULT_MAX_INBOUND_MESSAGE_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * Connection or collection property enabling the streaming store mode. If set to {@code true},
+   * the input stream passed to {@code setContentAsStream} is kept as deferred source and piped
+   * chunk by chunk to the server when the resource gets stored, instead of being buffered in
+   * memory.
+   */
+  public static final String STORE_STREAMING = "store.streaming";
+
+  /**
+   * Connection or collection property defining the number of resource ids fetched at once by
+   * {@link RemoteCollection#createId()}. A value of {@code 0} creates every id by a separate call.
+   */
+  public static final String ID_BLOCK_SIZE = "id.block.size";
+
+  /**
+   * The default number of resource ids fetched at once.
+   */
+  public static final long DEFAULT_ID_BLOCK_SIZE = 64;
+
+  /**
+   * Connection or collection property defining the maximum content size in bytes of a resource
+   * stored using a single message instead of a stream of chunks. A value of {@code 0} only inlines
+   * empty content.
+   */
+  public static final String STORE_INLINE_THRESHOLD = "store.inline.threshold";
+
+  /**
+   * The default maximum content size in bytes of a resource stored using a single message.
+   */
+  public static final long DEFAULT_STORE_INLINE_THRESHOLD = 64 * 1024;
+
+  /**
+   * Connection or collection property defining the maximum number of resources stored concurrently
+   * by {@link RemoteCollection#storeResources(Iterable)}.
+   */
+  public static final String STORE_PARALLELISM = "store.parallelism";
+
+  /**
+   * The default maximum number of resources stored concurrently.
+   */
+  public static final long DEFAULT_STORE_PARALLELISM = 16;
+
+  /**
+   * Connection or collection property enabling the local content cache of resources. If set to
+   * {@code true}, the content of a resource is downloaded only once and replayed from a local copy
+   * until the last modification time of the resource changes.
+   */
+  public static final String CONTENT_CACHE = "content.cache";
+
+  /**
+   * Connection or collection property defining the maximum size in bytes of cached content kept on
+   * the heap. Larger content is spilled to a temporary file.
+   */
+  public static final String CONTENT_CACHE_THRESHOLD = "content.cache.threshold";
+
+  /**
+   * The default maximum size of cached content kept on the heap.
+   */
+  public static final long DEFAULT_CONTENT_CACHE_THRESHOLD = 1024 * 1024;
+
+  /**
+   * Database property defining the memory budget in bytes of the document cache shared by all
+   * collections of a {@link RemoteDatabase}. A value of {@code 0} disables the document cache.
+   */
+  public static final String DOCUMENT_CACHE_SIZE = "document.cache.size";
+
+  /**
+   * Database property defining whether the document cache stores content off-heap using direct
+   * buffers.
+   */
+  public static final String DOCUMENT_CACHE_OFF_HEAP = "document.cache.offheap";
+
+  /**
+   * Connection property defining the time in milliseconds an opened child collection handle is kept
+   * for reuse after the last collection using it has been closed. With the default of {@code 0}
+   * handles are only shared between collections open at the same time.
+   */
+  public static final String COLLECTION_CACHE_TTL = "collection.cache.ttl";
+
+  /**
+   * Connection property defining the maximum time in milliseconds to wait for the next entry of a
+   * resource or child collection listing. A value of {@code 0} waits without limit.
+   */
+  public static final String LIST_READ_TIMEOUT = "list.read.timeout";
+
+  /**
+   * Connection property defining the maximum time in milliseconds to wait for the next chunk of
+   * downloaded resource content. A value of {@code 0} waits without limit.
+   */
+  public static final String LOAD_READ_TIMEOUT = "load.read.timeout";
+
+  /**
+   * Connection property defining the maximum time in milliseconds to wait for the next chunk of a
+   * query result. A value of {@code 0} waits without limit.
+   */
+  public static final String QUERY_READ_TIMEOUT = "query.read.timeout";
+
+  /**
+   * Connection property defining the maximum time in milliseconds to wait for the server to accept
+   * the next chunk of uploaded resource content. A value of {@code 0} waits without limit.
+   */
+  public static final String STORE_WRITE_TIMEOUT = "store.write.timeout";
+
+  /**
+   * Connection or collection property defining the number of query result items fetched at once
+   * from a cursor kept on the server. The page following the accessed one is fetched in advance.
+   * A value of {@code 0} streams the whole result instead.
+   */
+  public static final String QUERY_PAGE_SIZE = "query.page.size";
+
+  /**
+   * The default number of query result items fetched at once, streaming the whole result.
+   */
+  public static final long DEFAULT_QUERY_PAGE_SIZE = 0;
+
+  /**
+   * Connection property defining the maximum number of queries kept compiled on the server. Queries
+   * are compiled once and evaluated by their handle, the least recently used ones are released
+   * when the limit is exceeded. A value of {@code 0} sends the query text with every evaluation.
+   */
+  public static final String QUERY_CACHE_SIZE = "query.cache.size";
+
+  /**
+   * The default maximum number of compiled queries.
+   */
+  public static final long DEFAULT_QUERY_CACHE_SIZE = 128;
+
+  /**
+   * The default maximum time in milliseconds to wait for the next message of a streaming call, or
+   * for the server to accept the next message of an upload.
+   */
+  public static final long DEFAULT_READ_TIMEOUT = 30_000;
+
+  /**
+   * Connection property defining the deadline in milliseconds of metadata calls like opening a
+   * collection or resource. A value of {@code 0} disables the deadline.
+   */
+  public static final String DEADLINE_METADATA = "deadline.metadata";
+
+  /**
+   * The default deadline in milliseconds of metadata calls.
+   */
+  public static final long DEFAULT_DEADLINE_METADATA = 10_000;
+
+  /**
+   * Connection property defining the deadline in milliseconds of a complete resource or child
+   * collection listing. A value of {@code 0} disables the deadline, leaving listings only
+   * bounded by the {@link #LIST_READ_TIMEOUT}.
+   */
+  public static final String DEADLINE_LISTING = "deadline.listing";
+
+  /**
+   * The default deadline in milliseconds of listing calls.
+   */
+  public static final long DEFAULT_DEADLINE_LISTING = 0;
+
+  /**
+   * Connection or collection property defining the base deadline in milliseconds of a content
+   * transfer, which is extended by the time needed to transfer the content at the
+   * {@link #DEADLINE_TRANSFER_THROUGHPUT}. A value of {@code 0} disables the deadline.
+   */
+  public static final String DEADLINE_TRANSFER = "deadline.transfer";
+
+  /**
+   * The default base deadline in milliseconds of content transfers.
+   */
+  public static final long DEFAULT_DEADLINE_TRANSFER = 30_000;
+
+  /**
+   * Connection or collection property defining the minimum throughput in bytes per second expected
+   * for content transfers. A value of {@code 0} does not extend the transfer deadline by the size
+   * of the content.
+   */
+  public static final String DEADLINE_TRANSFER_THROUGHPUT = "deadline.transfer.throughput";
+
+  /**
+   * The default minimum throughput in bytes per second of content transfers.
+   */
+  public static final long DEFAULT_DEADLINE_TRANSFER_THROUGHPUT = 1024 * 1024;
+
+  /**
+   * Connection property selecting the executor of the gRPC channel. With the value
+   * {@value #EXECUTOR_VIRTUAL} call callbacks and credential lookups run on virtual threads,
+   * otherwise on the default cached thread pool of gRPC.
+   */
+  public static final String EXECUTOR = "executor";
+
+  /**
+   * The {@link #EXECUTOR} property value selecting virtual threads.
+   */
+  public static final String EXECUTOR_VIRTUAL = "virtual";
+
+  /**
+   * Connection or collection property defining the compression of stored resource content, such
+   * as {@code gzip}. Besides gzip any {@link io.grpc.Codec} registered as service provider can be
+   * used. Compressed responses are accepted for all registered codecs independent of this setting.
+   */
+  public static final String COMPRESSION = "compression";
+
+  /**
+   * Connection or collection property defining the minimum content size in bytes of a resource
+   * to be stored compressed. Content of unknown size is always compressed.
+   */
+  public static final String COMPRESSION_THRESHOLD = "compression.threshold";
+
+  /**
+   * The default minimum content size in bytes of a resource to be stored compressed.
+   */
+  public static final long DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
   private Constants() {}
 }
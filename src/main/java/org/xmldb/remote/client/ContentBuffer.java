@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Objects;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * A local copy of downloaded resource content. Content up to the configured threshold is kept on
+ * the heap as the received chunks, larger content is spilled to a temporary file that is deleted
+ * when the buffer gets closed. The buffer records the last modification time of the resource it
+ * was loaded for, allowing to detect stale content.
+ */
+final class ContentBuffer implements AutoCloseable {
+  private final Instant lastModification;
+  private final long threshold;
+
+  private ByteString heapContent;
+  private FileChannel fileContent;
+
+  ContentBuffer(Instant lastModification, long threshold) {
+    this.lastModification = lastModification;
+    this.threshold = threshold;
+    this.heapContent = ByteString.EMPTY;
+  }
+
+  ContentBuffer(Instant lastModification, ByteString content) {
+    this.lastModification = lastModification;
+    this.threshold = content.size();
+    this.heapContent = content;
+  }
+
+  /**
+   * Returns whether this buffer holds the content for the given modification time.
+   *
+   * @param modification the last modification time of the resource
+   * @return {@code true} if the buffered content is still valid
+   */
+  boolean isValidFor(Instant modification) {
+    return lastModification.equals(modification);
+  }
+
+  /**
+   * Appends the given chunk to the buffered content, spilling it to a temporary file once the
+   * threshold is exceeded.
+   *
+   * @param chunk the chunk to append
+   * @throws IOException if writing to the temporary file failed
+   */
+  void append(ByteString chunk) throws IOException {
+    if (fileContent == null && heapContent.size() + (long) chunk.size() <= threshold) {
+      heapContent = heapContent.concat(chunk);
+      return;
+    }
+    if (fileContent == null) {
+      fileContent = FileChannel.open(Files.createTempFile("xmldb-content-", ".tmp"), READ, WRITE,
+          DELETE_ON_CLOSE);
+      writeChunk(heapContent);
+      heapContent = ByteString.EMPTY;
+    }
+    writeChunk(chunk);
+  }
+
+  private void writeChunk(ByteString chunk) throws IOException {
+    for (ByteBuffer buffer : chunk.asReadOnlyByteBufferList()) {
+      while (buffer.hasRemaining()) {
+        fileContent.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Writes the buffered content to the given stream.
+   *
+   * @param stream the target stream
+   * @throws IOException if the content could not be written
+   */
+  void writeTo(OutputStream stream) throws IOException {
+    if (fileContent == null) {
+      heapContent.writeTo(stream);
+    } else {
+      writeTo(Channels.newChannel(stream));
+    }
+  }
+
+  /**
+   * Writes the buffered content to the given channel.
+   *
+   * @param channel the target channel
+   * @throws IOException if the content could not be written
+   */
+  void writeTo(WritableByteChannel channel) throws IOException {
+    if (fileContent == null) {
+      for (ByteBuffer buffer : heapContent.asReadOnlyByteBufferList()) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    } else {
+      final long size = fileContent.size();
+      for (long position = 0; position < size;) {
+        position += fileContent.transferTo(position, size - position, channel);
+      }
+    }
+  }
+
+  /**
+   * Returns a stream reading the buffered content. Heap content is read from the received chunks
+   * without copying them, spilled content is read from the temporary file at positions independent
+   * of other readers. The stream fails once the buffer got closed.
+   *
+   * @return a new stream of the buffered content
+   */
+  InputStream newInput() {
+    if (fileContent == null) {
+      return heapContent.newInput();
+    }
+    final FileChannel channel = fileContent;
+    return new InputStream() {
+      private final ByteBuffer single = ByteBuffer.allocate(1);
+      private long position;
+
+      @Override
+      public int read() throws IOException {
+        single.clear();
+        if (channel.read(single, position) <= 0) {
+          return -1;
+        }
+        position++;
+        return single.get(0) & 0xff;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+          return 0;
+        }
+        final int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+        if (read > 0) {
+          position += read;
+        }
+        return read;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    heapContent = ByteString.EMPTY;
+    if (fileContent != null) {
+      fileContent.close();
+      fileContent = null;
+    }
+  }
+}
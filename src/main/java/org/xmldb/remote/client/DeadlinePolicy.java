@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.xmldb.remote.client.Constants.DEADLINE_LISTING;
+import static org.xmldb.remote.client.Constants.DEADLINE_METADATA;
+import static org.xmldb.remote.client.Constants.DEADLINE_TRANSFER;
+import static org.xmldb.remote.client.Constants.DEADLINE_TRANSFER_THROUGHPUT;
+import static org.xmldb.remote.client.Constants.DEFAULT_DEADLINE_LISTING;
+import static org.xmldb.remote.client.Constants.DEFAULT_DEADLINE_METADATA;
+import static org.xmldb.remote.client.Constants.DEFAULT_DEADLINE_TRANSFER;
+import static org.xmldb.remote.client.Constants.DEFAULT_DEADLINE_TRANSFER_THROUGHPUT;
+
+import java.util.function.Function;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+
+/**
+ * Determines the deadlines of the calls to the server by type of call. Metadata calls use a short
+ * fixed deadline, listings a separate one, and content transfers a base deadline extended by the
+ * time needed to transfer the content at the configured minimum throughput.
+ * <p>
+ * A deadline of the current {@link Context} of the caller takes precedence over a later deadline of
+ * the policy. A configured value of {@code 0} disables the respective deadline.
+ */
+final class DeadlinePolicy {
+  private final long metadataMillis;
+  private final long listingMillis;
+  private final long transferMillis;
+  private final long transferThroughput;
+
+  private DeadlinePolicy(long metadataMillis, long listingMillis, long transferMillis,
+      long transferThroughput) {
+    this.metadataMillis = metadataMillis;
+    this.listingMillis = listingMillis;
+    this.transferMillis = transferMillis;
+    this.transferThroughput = transferThroughput;
+  }
+
+  /**
+   * Creates the deadline policy defined by the given settings.
+   *
+   * @param settings the lookup of the property values by name
+   * @return the deadline policy
+   * @throws NumberFormatException if a property value is not a valid number
+   */
+  static DeadlinePolicy of(Function<String, String> settings) {
+    return new DeadlinePolicy(value(settings, DEADLINE_METADATA, DEFAULT_DEADLINE_METADATA),
+        value(settings, DEADLINE_LISTING, DEFAULT_DEADLINE_LISTING),
+        value(settings, DEADLINE_TRANSFER, DEFAULT_DEADLINE_TRANSFER),
+        value(settings, DEADLINE_TRANSFER_THROUGHPUT, DEFAULT_DEADLINE_TRANSFER_THROUGHPUT));
+  }
+
+  private static long value(Function<String, String> settings, String name, long defaultValue) {
+    final String value = settings.apply(name);
+    return value == null || value.isBlank() ? defaultValue
+        : Math.max(0, Long.parseLong(value.strip()));
+  }
+
+  /**
+   * Returns the deadline of a metadata call started now.
+   *
+   * @return the deadline, or {@code null} if the call has no deadline
+   */
+  Deadline metadataDeadline() {
+    return deadlineAfter(metadataMillis);
+  }
+
+  /**
+   * Returns the deadline of a listing call started now.
+   *
+   * @return the deadline, or {@code null} if the call has no deadline
+   */
+  Deadline listingDeadline() {
+    return deadlineAfter(listingMillis);
+  }
+
+  /**
+   * Returns the deadline of a transfer of the given size started now. The transfer of content of
+   * unknown size has no deadline besides one of the caller, a stalled transfer is detected by the
+   * timeouts of {@link Constants#LOAD_READ_TIMEOUT} and {@link Constants#STORE_WRITE_TIMEOUT}
+   * waiting for the next chunk instead.
+   *
+   * @param size the number of bytes to be transferred, or a negative value if unknown
+   * @return the deadline, or {@code null} if the call has no deadline
+   */
+  Deadline transferDeadline(long size) {
+    if (size < 0 || transferMillis == 0) {
+      return deadlineAfter(0);
+    }
+    final double transferSeconds = transferThroughput == 0 ? 0 : (double) size / transferThroughput;
+    return effective(Deadline.after(
+        MILLISECONDS.toNanos(transferMillis) + (long) (transferSeconds * SECONDS.toNanos(1)),
+        NANOSECONDS));
+  }
+
+  /**
+   * Returns the deadline to wait for the completion of a transfer whose content has been sent.
+   *
+   * @return the deadline, or {@code null} if the wait is not bounded
+   */
+  Deadline completionDeadline() {
+    return deadlineAfter(transferMillis);
+  }
+
+  private static Deadline deadlineAfter(long millis) {
+    return effective(millis == 0 ? null : Deadline.after(millis, MILLISECONDS));
+  }
+
+  private static Deadline effective(Deadline deadline) {
+    final Deadline callerDeadline = Context.current().getDeadline();
+    if (callerDeadline == null) {
+      return deadline;
+    }
+    return deadline == null ? callerDeadline : deadline.minimum(callerDeadline);
+  }
+
+  @Override
+  public String toString() {
+    return "DeadlinePolicy(metadata=%d, listing=%d, transfer=%d, throughput=%d)"
+        .formatted(metadataMillis, listingMillis, transferMillis, transferThroughput);
+  }
+}
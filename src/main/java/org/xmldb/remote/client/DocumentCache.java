@@ -0,0 +1,288 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * A size bounded cache of resource content shared by all collections of a {@link RemoteDatabase}.
+ * Entries are keyed by endpoint, collection path and resource id and carry the last modification
+ * time of the resource, which is compared with the metadata returned when opening a resource.
+ * <p>
+ * Eviction follows a segmented LRU policy: new entries enter a probation segment and are promoted
+ * to the protected segment on their second access, so that frequently read documents survive scans
+ * over many documents read only once. Content can optionally be stored off-heap.
+ */
+final class DocumentCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCache.class);
+  private static final long ENTRY_OVERHEAD = 128;
+  private static final int PROTECTED_PERCENTAGE = 80;
+  private static final int MAX_ENTRY_FRACTION = 8;
+
+  private final ReentrantLock lock;
+  private final LinkedHashMap<DocumentKey, CachedDocument> probation;
+  private final LinkedHashMap<DocumentKey, CachedDocument> protectedSegment;
+
+  private long budget;
+  private boolean offHeap;
+  private long probationWeight;
+  private long protectedWeight;
+
+  DocumentCache() {
+    lock = new ReentrantLock();
+    probation = new LinkedHashMap<>(16, 0.75f, true);
+    protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Identifies a cached document.
+   *
+   * @param endpoint the server endpoint
+   * @param collectionPath the path of the collection containing the resource
+   * @param resourceId the id of the resource
+   */
+  record DocumentKey(String endpoint, String collectionPath, String resourceId) {
+  }
+
+  private record CachedDocument(long lastModificationTime, ByteString content) {
+    long weight() {
+      return content.size() + ENTRY_OVERHEAD;
+    }
+  }
+
+  /**
+   * Configures the memory budget and storage of the cache, evicting entries exceeding a reduced
+   * budget.
+   *
+   * @param budget the maximum number of bytes cached, {@code 0} disables the cache
+   * @param offHeap {@code true} to store newly cached content in direct buffers
+   */
+  void configure(long budget, boolean offHeap) {
+    lock.lock();
+    try {
+      this.budget = Math.max(0, budget);
+      this.offHeap = offHeap;
+      evictExceeding();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether the cache is enabled.
+   *
+   * @return {@code true} if the cache has a memory budget
+   */
+  boolean isEnabled() {
+    lock.lock();
+    try {
+      return budget > 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the cached content of a document if it matches the given last modification time. A
+   * stale entry is removed from the cache.
+   *
+   * @param key the document key
+   * @param lastModificationTime the current last modification time of the resource
+   * @return the cached content, if present and valid
+   */
+  Optional<ByteString> lookup(DocumentKey key, long lastModificationTime) {
+    lock.lock();
+    try {
+      CachedDocument document = protectedSegment.get(key);
+      if (document == null) {
+        document = probation.remove(key);
+        if (document == null) {
+          return Optional.empty();
+        }
+        probationWeight -= document.weight();
+        if (document.lastModificationTime() != lastModificationTime) {
+          return Optional.empty();
+        }
+        protectedSegment.put(key, document);
+        protectedWeight += document.weight();
+        demoteExceeding();
+      } else if (document.lastModificationTime() != lastModificationTime) {
+        protectedSegment.remove(key);
+        protectedWeight -= document.weight();
+        return Optional.empty();
+      }
+      return Optional.of(document.content());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds the content of a document to the probation segment of the cache. Content larger than a
+   * fraction of the budget is not cached.
+   *
+   * @param key the document key
+   * @param lastModificationTime the last modification time of the content
+   * @param content the document content
+   */
+  void put(DocumentKey key, long lastModificationTime, ByteString content) {
+    lock.lock();
+    try {
+      if (!accepts(content.size())) {
+        return;
+      }
+      invalidate(key);
+      final CachedDocument document =
+          new CachedDocument(lastModificationTime, offHeap ? toDirect(content) : content);
+      probation.put(key, document);
+      probationWeight += document.weight();
+      evictExceeding();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the content of a document from the cache.
+   *
+   * @param key the document key
+   */
+  void invalidate(DocumentKey key) {
+    lock.lock();
+    try {
+      final CachedDocument probationDocument = probation.remove(key);
+      if (probationDocument != null) {
+        probationWeight -= probationDocument.weight();
+      }
+      final CachedDocument protectedDocument = protectedSegment.remove(key);
+      if (protectedDocument != null) {
+        protectedWeight -= protectedDocument.weight();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a collector gathering the chunks of a document being downloaded, which are added to
+   * the cache once the download completed.
+   *
+   * @param key the document key
+   * @param lastModificationTime the last modification time of the downloaded content
+   * @return a collector for the document content
+   */
+  Collector collector(DocumentKey key, long lastModificationTime) {
+    return new Collector(key, lastModificationTime, isEnabled());
+  }
+
+  private boolean accepts(long size) {
+    return budget > 0 && size + ENTRY_OVERHEAD <= budget / MAX_ENTRY_FRACTION;
+  }
+
+  private static ByteString toDirect(ByteString content) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(content.size());
+    content.copyTo(buffer);
+    buffer.flip();
+    return UnsafeByteOperations.unsafeWrap(buffer.asReadOnlyBuffer());
+  }
+
+  private void demoteExceeding() {
+    final long protectedBudget = budget * PROTECTED_PERCENTAGE / 100;
+    final Iterator<Map.Entry<DocumentKey, CachedDocument>> iterator =
+        protectedSegment.entrySet().iterator();
+    while (protectedWeight > protectedBudget && iterator.hasNext()) {
+      final Map.Entry<DocumentKey, CachedDocument> entry = iterator.next();
+      iterator.remove();
+      protectedWeight -= entry.getValue().weight();
+      probation.put(entry.getKey(), entry.getValue());
+      probationWeight += entry.getValue().weight();
+    }
+    evictExceeding();
+  }
+
+  private void evictExceeding() {
+    evictExceeding(probation.entrySet().iterator(), true);
+    evictExceeding(protectedSegment.entrySet().iterator(), false);
+  }
+
+  private void evictExceeding(Iterator<Map.Entry<DocumentKey, CachedDocument>> iterator,
+      boolean probationSegment) {
+    while (probationWeight + protectedWeight > budget && iterator.hasNext()) {
+      final Map.Entry<DocumentKey, CachedDocument> eldest = iterator.next();
+      iterator.remove();
+      if (probationSegment) {
+        probationWeight -= eldest.getValue().weight();
+      } else {
+        protectedWeight -= eldest.getValue().weight();
+      }
+      LOGGER.trace("Evicted {}", eldest.getKey());
+    }
+  }
+
+  /**
+   * Gathers the chunks of a downloaded document without copying them. Collection is abandoned as
+   * soon as the content exceeds the size accepted by the cache.
+   */
+  final class Collector {
+    private final DocumentKey key;
+    private final long lastModificationTime;
+
+    private ByteString content;
+
+    private Collector(DocumentKey key, long lastModificationTime, boolean enabled) {
+      this.key = key;
+      this.lastModificationTime = lastModificationTime;
+      this.content = enabled ? ByteString.EMPTY : null;
+    }
+
+    /**
+     * Appends a received chunk.
+     *
+     * @param chunk the chunk to append
+     */
+    void append(ByteString chunk) {
+      if (content != null) {
+        final ByteString appended = content.concat(chunk);
+        content = appended.size() + ENTRY_OVERHEAD <= budgetLimit() ? appended : null;
+      }
+    }
+
+    /**
+     * Adds the collected content to the cache.
+     */
+    void complete() {
+      if (content != null) {
+        put(key, lastModificationTime, content);
+        content = null;
+      }
+    }
+
+    private long budgetLimit() {
+      lock.lock();
+      try {
+        return budget / MAX_ENTRY_FRACTION;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.grpc.stub.StreamObserver;
+
+/**
+ * A {@link StreamObserver} collecting the values received from the server into a list, which
+ * completes a {@link CompletableFuture} once the call has finished. A failed call completes the
+ * future exceptionally with an {@link org.xmldb.api.base.XMLDBException}.
+ *
+ * @param <T> the type of the received values
+ */
+final class FutureStreamObserver<T> implements StreamObserver<T> {
+  private final CompletableFuture<List<T>> future;
+  private final List<T> values;
+
+  FutureStreamObserver() {
+    this.future = new CompletableFuture<>();
+    this.values = new ArrayList<>();
+  }
+
+  /**
+   * Returns the future completed with the received values.
+   *
+   * @return the future of the received values
+   */
+  CompletableFuture<List<T>> future() {
+    return future;
+  }
+
+  @Override
+  public void onNext(T value) {
+    values.add(value);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    future.completeExceptionally(RemoteClient.handleCallFailure(throwable));
+  }
+
+  @Override
+  public void onCompleted() {
+    future.complete(List.copyOf(values));
+  }
+}
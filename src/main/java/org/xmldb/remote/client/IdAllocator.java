@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.XMLDBException;
+
+/**
+ * Hands out resource ids of a collection from blocks fetched from the server in advance. Taking an
+ * id does not lock, the next block is requested in the background once a quarter of the current
+ * block is left. Only when no id is left the caller waits for the next block.
+ */
+final class IdAllocator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IdAllocator.class);
+
+  /**
+   * Loads a block of new ids from the server.
+   */
+  @FunctionalInterface
+  interface BlockLoader {
+    /**
+     * Requests the given number of new ids.
+     *
+     * @param count the number of ids requested
+     * @return the future of the new ids, completed with an empty list if the server does not
+     *         create blocks of ids
+     */
+    CompletableFuture<List<String>> load(int count);
+  }
+
+  private final BlockLoader loader;
+  private final int blockSize;
+  private final int refillThreshold;
+  private final ConcurrentLinkedQueue<String> ids;
+  private final AtomicInteger available;
+  private final AtomicReference<CompletableFuture<List<String>>> pendingBlock;
+
+  IdAllocator(BlockLoader loader, int blockSize) {
+    this.loader = loader;
+    this.blockSize = blockSize;
+    this.refillThreshold = blockSize / 4;
+    this.ids = new ConcurrentLinkedQueue<>();
+    this.available = new AtomicInteger();
+    this.pendingBlock = new AtomicReference<>();
+  }
+
+  /**
+   * Returns the next unused id.
+   *
+   * @return the id, or {@code null} if the server does not create blocks of ids
+   * @throws XMLDBException if the next block of ids could not be loaded
+   */
+  String next() throws XMLDBException {
+    while (true) {
+      final String id = poll();
+      if (id != null) {
+        return id;
+      }
+      if (RemoteClient.await(refill()).isEmpty()) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Returns the next unused id without blocking. If no id is left, the future completes once the
+   * next block of ids has been loaded.
+   *
+   * @return the future of the id, completed with {@code null} if the server does not create blocks
+   *         of ids
+   */
+  CompletableFuture<String> nextAsync() {
+    final String id = poll();
+    if (id != null) {
+      return CompletableFuture.completedFuture(id);
+    }
+    return refill().thenCompose(
+        newIds -> newIds.isEmpty() ? CompletableFuture.completedFuture(null) : nextAsync());
+  }
+
+  private String poll() {
+    final String id = ids.poll();
+    if (id != null && available.decrementAndGet() <= refillThreshold) {
+      refill();
+    }
+    return id;
+  }
+
+  private CompletableFuture<List<String>> refill() {
+    while (true) {
+      final CompletableFuture<List<String>> pending = pendingBlock.get();
+      if (pending != null) {
+        return pending;
+      }
+      final CompletableFuture<List<String>> block = new CompletableFuture<>();
+      if (pendingBlock.compareAndSet(null, block)) {
+        loader.load(blockSize).whenComplete((newIds, failure) -> {
+          if (newIds != null) {
+            ids.addAll(newIds);
+            available.addAndGet(newIds.size());
+          }
+          pendingBlock.set(null);
+          if (failure == null) {
+            block.complete(newIds);
+          } else {
+            LOGGER.debug("Failed to load the next block of ids", failure);
+            block.completeExceptionally(failure);
+          }
+        });
+        return block;
+      }
+    }
+  }
+}
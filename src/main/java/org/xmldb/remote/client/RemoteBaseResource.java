@@ -11,36 +11,60 @@
 package org.xmldb.remote.client;
 
 import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
-import static org.xmldb.remote.client.Constants.DEFAULT_BUFFER_SIZE;
+import static org.xmldb.remote.client.Constants.CONTENT_CACHE;
+import static org.xmldb.remote.client.Constants.CONTENT_CACHE_THRESHOLD;
+import static org.xmldb.remote.client.Constants.DEFAULT_CONTENT_CACHE_THRESHOLD;
+import static org.xmldb.remote.client.Constants.STORE_STREAMING;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.time.Instant;
-import java.util.Iterator;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.xmldb.api.base.Collection;
 import org.xmldb.api.base.Resource;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CreateResourceMeta;
 import org.xmldb.api.grpc.ResourceData;
 import org.xmldb.api.grpc.ResourceLoadRequest;
 import org.xmldb.api.grpc.ResourceMeta;
 
+import com.google.protobuf.ByteString;
+
 /**
  * Represents a base class for remote resources, providing common functionality for resources
  * managed in a remote resource collection. This class is parameterized to handle specific content
  * types defined by its concrete subclass.
+ * <p>
+ * If the {@link Constants#STORE_STREAMING} property is enabled, an input stream passed to
+ * {@link #setContentAsStream(InputStream)} is kept as deferred content source and piped directly to
+ * the server when the resource gets stored. Reading the content before storing it loads the
+ * deferred source into memory.
+ * <p>
+ * If the {@link Constants#CONTENT_CACHE} property is enabled, downloaded content is kept locally
+ * and replayed on subsequent reads as long as the last modification time of the resource does not
+ * change.
+ * <p>
+ * A resource created by {@link RemoteCollection#createResource(String, Class)} only exists locally
+ * until it gets stored, its creation is sent to the server together with its content.
  */
 public abstract class RemoteBaseResource implements Resource {
   private final String id;
   private final AtomicBoolean open;
-  private final ResourceMeta resourceMeta;
   private final RemoteCollection parentCollection;
 
+  private ResourceMeta resourceMeta;
+  private CreateResourceMeta pendingCreation;
+
   private Instant lastModification;
   private byte[] content;
+  private InputStream contentSource;
+  private ContentBuffer contentCache;
 
   /**
    * Initializes a new instance of the {@code RemoteBaseResource} class.
@@ -67,6 +91,45 @@ public abstract class RemoteBaseResource implements Resource {
     return resourceMeta;
   }
 
+  /**
+   * Marks this resource as not yet existing on the server. The given creation request is sent when
+   * the resource gets stored.
+   *
+   * @param creation the request creating the resource
+   */
+  final void deferCreation(CreateResourceMeta creation) {
+    pendingCreation = creation;
+  }
+
+  /**
+   * Returns the request creating this resource on the server, if it has not been stored yet.
+   *
+   * @return the creation request, or {@code null} if the resource exists on the server
+   */
+  final CreateResourceMeta pendingCreation() {
+    return pendingCreation;
+  }
+
+  /**
+   * Adopts the metadata of this resource returned by the server after it has been created.
+   *
+   * @param createdMeta the metadata of the created resource
+   */
+  final void created(ResourceMeta createdMeta) {
+    resourceMeta = createdMeta;
+    pendingCreation = null;
+    lastModification = Instant.ofEpochMilli(createdMeta.getLastModificationTime());
+  }
+
+  /**
+   * Uses the given content of the document cache instead of downloading it.
+   *
+   * @param cachedContent the cached content matching the current modification time
+   */
+  final void useCachedContent(ByteString cachedContent) {
+    contentCache = new ContentBuffer(lastModification, cachedContent);
+  }
+
   /**
    * Sets the last modification time for the resource.
    *
@@ -90,9 +153,9 @@ public abstract class RemoteBaseResource implements Resource {
   @Override
   public final void getContentAsStream(OutputStream stream) throws XMLDBException {
     try {
+      materializeContentSource();
       if (content == null) {
-        // TODO: buffer locally to only download once?
-        loadContent(stream);
+        readContent(chunk -> chunk.writeTo(stream), buffer -> buffer.writeTo(stream));
       } else {
         stream.write(content);
       }
@@ -101,32 +164,336 @@ public abstract class RemoteBaseResource implements Resource {
     }
   }
 
+  /**
+   * Writes the content of this resource to the given channel. The received data chunks are passed
+   * to the channel as read-only buffers without copying them.
+   *
+   * @param channel the channel to write the content to
+   * @throws XMLDBException if the content could not be loaded or written
+   */
+  public final void getContentAsChannel(WritableByteChannel channel) throws XMLDBException {
+    try {
+      materializeContentSource();
+      if (content == null) {
+        readContent(chunk -> {
+          for (ByteBuffer buffer : chunk.asReadOnlyByteBufferList()) {
+            writeFully(channel, buffer);
+          }
+        }, buffer -> buffer.writeTo(channel));
+      } else {
+        writeFully(channel, ByteBuffer.wrap(content).asReadOnlyBuffer());
+      }
+    } catch (IOException e) {
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
+  }
+
+  private static void writeFully(WritableByteChannel channel, ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
   @Override
   public void setContentAsStream(InputStream inputStream) throws XMLDBException {
-    try (inputStream; ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-      inputStream.transferTo(outputStream);
-      this.content = outputStream.toByteArray();
+    try {
+      discardContentSource();
+      discardContentCache();
+      if (Boolean.parseBoolean(parentCollection.setting(STORE_STREAMING))) {
+        this.content = null;
+        this.contentSource = inputStream;
+      } else {
+        try (inputStream) {
+          this.content = inputStream.readAllBytes();
+        }
+      }
     } catch (IOException e) {
       throw new XMLDBException(VENDOR_ERROR, e);
     }
   }
 
-  private void loadContent(OutputStream stream) throws XMLDBException {
+  /**
+   * Writes the content to be stored to the given stream. A deferred content source is consumed
+   * chunk by chunk without buffering it in memory, and thus can only be transferred once.
+   *
+   * @param stream the stream receiving the content
+   * @throws XMLDBException if the content could not be read or written
+   */
+  final void transferContent(OutputStream stream) throws XMLDBException {
+    final InputStream source = contentSource;
+    if (source == null) {
+      getContentAsStream(stream);
+    } else {
+      contentSource = null;
+      try (source) {
+        source.transferTo(stream);
+      } catch (IOException e) {
+        throw new XMLDBException(VENDOR_ERROR, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes {@link #transferContent(OutputStream)} is going to write, if known.
+   *
+   * @return the content size, or {@code -1} if unknown
+   */
+  final long transferSize() {
+    if (content != null) {
+      return content.length;
+    } else if (contentSource != null) {
+      return -1;
+    }
+    return pendingCreation == null ? contentSize() : 0;
+  }
+
+  private long contentSize() {
+    return resourceMeta.hasSize() ? resourceMeta.getSize() : -1;
+  }
+
+  private void materializeContentSource() throws IOException {
+    final InputStream source = contentSource;
+    if (source != null) {
+      contentSource = null;
+      try (source) {
+        content = source.readAllBytes();
+      }
+    }
+  }
+
+  private void discardContentCache() throws IOException {
+    final ContentBuffer buffer = contentCache;
+    if (buffer != null) {
+      contentCache = null;
+      buffer.close();
+    }
+  }
+
+  private void discardContentSource() throws IOException {
+    final InputStream source = contentSource;
+    if (source != null) {
+      contentSource = null;
+      source.close();
+    }
+  }
+
+  @FunctionalInterface
+  private interface ChunkConsumer {
+    void accept(ByteString chunk) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface BufferConsumer {
+    void accept(ContentBuffer buffer) throws IOException;
+  }
+
+  private void readContent(ChunkConsumer consumer, BufferConsumer replay)
+      throws IOException, XMLDBException {
+    if (contentCache != null && contentCache.isValidFor(lastModification)) {
+      replay.accept(contentCache);
+      return;
+    }
+    if (!resourceMeta.hasResourceId()) {
+      // not stored yet or a query result, there is no content on the server
+      return;
+    }
+    discardContentCache();
+    final DocumentCache.Collector collector =
+        parentCollection.documentCollector(id, lastModification);
+    if (!Boolean.parseBoolean(parentCollection.setting(CONTENT_CACHE))) {
+      loadContent(chunk -> {
+        consumer.accept(chunk);
+        collector.append(chunk);
+      });
+      collector.complete();
+      return;
+    }
+    final ContentBuffer buffer = new ContentBuffer(lastModification,
+        parentCollection.longSetting(CONTENT_CACHE_THRESHOLD, DEFAULT_CONTENT_CACHE_THRESHOLD));
+    boolean loaded = false;
+    try {
+      loadContent(chunk -> {
+        consumer.accept(chunk);
+        buffer.append(chunk);
+        collector.append(chunk);
+      });
+      collector.complete();
+      contentCache = buffer;
+      loaded = true;
+    } finally {
+      if (!loaded) {
+        buffer.close();
+      }
+    }
+  }
+
+  private void loadContent(ChunkConsumer consumer) throws XMLDBException {
+    final ChunkSizePolicy chunkSizePolicy = parentCollection.chunkSizePolicy();
+    final int chunkSize = chunkSizePolicy.chunkSize(resourceMeta);
     parentCollection.call(client -> {
-      final ResourceLoadRequest request =
-          ResourceLoadRequest.newBuilder().setResourceId(getResourceMeta().getResourceId())
-              .setChunkSize(DEFAULT_BUFFER_SIZE).build();
-      for (Iterator<ResourceData> resourceDataIterator =
-          client.loadResource(request); resourceDataIterator.hasNext();) {
-        try {
-          stream.write(resourceDataIterator.next().getDataChunk().toByteArray());
-        } catch (IOException e) {
-          throw new XMLDBException(VENDOR_ERROR, e);
+      final ResourceLoadRequest request = ResourceLoadRequest.newBuilder()
+          .setResourceId(getResourceMeta().getResourceId()).setChunkSize(chunkSize).build();
+      final long start = System.nanoTime();
+      long bytesLoaded = 0;
+      try (ClientCallIterator<ResourceData> resourceDataIterator = client.loadResource(request,
+          parentCollection.deadlinePolicy().transferDeadline(contentSize()))) {
+        while (resourceDataIterator.hasNext()) {
+          final ByteString chunk = resourceDataIterator.next().getDataChunk();
+          consumer.accept(chunk);
+          bytesLoaded += chunk.size();
+        }
+      } catch (IOException e) {
+        throw new XMLDBException(VENDOR_ERROR, e);
+      }
+      chunkSizePolicy.recordTransfer(chunkSize, bytesLoaded, System.nanoTime() - start);
+    });
+  }
+
+  /**
+   * Opens a stream of the content, reading downloaded chunks as they are consumed instead of
+   * collecting the whole content first. Buffered content and the received chunks of a query result
+   * are read without copying them. A download is passed to the document cache and, if enabled, the
+   * content cache once read completely, closing the stream early cancels it.
+   *
+   * @return the stream of the content, to be closed by the caller
+   * @throws XMLDBException if the download could not be started
+   */
+  final InputStream openContentStream() throws XMLDBException {
+    try {
+      materializeContentSource();
+      if (content != null) {
+        return new ByteArrayInputStream(content);
+      }
+      if (contentCache != null && contentCache.isValidFor(lastModification)) {
+        return contentCache.newInput();
+      }
+      if (!resourceMeta.hasResourceId()) {
+        return InputStream.nullInputStream();
+      }
+      discardContentCache();
+    } catch (IOException e) {
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
+    final DocumentCache.Collector collector =
+        parentCollection.documentCollector(id, lastModification);
+    final ContentBuffer buffer = Boolean.parseBoolean(parentCollection.setting(CONTENT_CACHE))
+        ? new ContentBuffer(lastModification,
+            parentCollection.longSetting(CONTENT_CACHE_THRESHOLD, DEFAULT_CONTENT_CACHE_THRESHOLD))
+        : null;
+    final int chunkSize = parentCollection.chunkSizePolicy().chunkSize(resourceMeta);
+    final ResourceLoadRequest request = ResourceLoadRequest.newBuilder()
+        .setResourceId(resourceMeta.getResourceId()).setChunkSize(chunkSize).build();
+    // the transfer is paced by the consumer, so it is not recorded for the chunk size policy
+    final ClientCallIterator<ResourceData> chunks = parentCollection.execute(client -> client
+        .loadResource(request, parentCollection.deadlinePolicy().transferDeadline(contentSize())));
+    return new ChunkInputStream(chunks, chunk -> {
+      if (buffer != null) {
+        buffer.append(chunk);
+      }
+      collector.append(chunk);
+    }, complete -> {
+      if (complete) {
+        collector.complete();
+        if (buffer != null) {
+          contentCache = buffer;
         }
+      } else if (buffer != null) {
+        buffer.close();
       }
     });
   }
 
+  @FunctionalInterface
+  private interface CompletionListener {
+    void completed(boolean complete) throws IOException;
+  }
+
+  /**
+   * Reads the chunks of a download as they are consumed. Every chunk read is passed to the
+   * consumer, the listener is notified once when all chunks have been read or the stream is closed
+   * before.
+   */
+  private static final class ChunkInputStream extends InputStream {
+    private final ClientCallIterator<ResourceData> chunks;
+    private final ChunkConsumer consumer;
+    private final CompletionListener listener;
+
+    private InputStream current;
+    private boolean finished;
+
+    ChunkInputStream(ClientCallIterator<ResourceData> chunks, ChunkConsumer consumer,
+        CompletionListener listener) {
+      this.chunks = chunks;
+      this.consumer = consumer;
+      this.listener = listener;
+      this.current = InputStream.nullInputStream();
+    }
+
+    @Override
+    public int read() throws IOException {
+      int read = current.read();
+      while (read < 0 && nextChunk()) {
+        read = current.read();
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+      if (length == 0) {
+        return 0;
+      }
+      int read = current.read(bytes, offset, length);
+      while (read < 0 && nextChunk()) {
+        read = current.read(bytes, offset, length);
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return current.available();
+    }
+
+    private boolean nextChunk() throws IOException {
+      if (finished) {
+        return false;
+      }
+      final boolean hasNext;
+      try {
+        hasNext = chunks.hasNext();
+        if (hasNext) {
+          final ByteString chunk = chunks.next().getDataChunk();
+          consumer.accept(chunk);
+          current = chunk.newInput();
+        }
+      } catch (IllegalStateException e) {
+        finish(false);
+        throw new IOException(RemoteClient.handleIteratorFailure(e));
+      }
+      if (!hasNext) {
+        finish(true);
+      }
+      return hasNext;
+    }
+
+    private void finish(boolean complete) throws IOException {
+      finished = true;
+      current = InputStream.nullInputStream();
+      listener.completed(complete);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!finished) {
+        chunks.close();
+        finish(false);
+      }
+    }
+  }
+
   @Override
   public final boolean isClosed() {
     return !open.get();
@@ -135,8 +502,17 @@ public abstract class RemoteBaseResource implements Resource {
   @Override
   public final void close() throws XMLDBException {
     if (open.compareAndSet(true, false)) {
-      parentCollection
-          .call(remoteClient -> remoteClient.closeResource(resourceMeta.getResourceId()));
+      try {
+        discardContentSource();
+        discardContentCache();
+      } catch (IOException e) {
+        throw new XMLDBException(VENDOR_ERROR, e);
+      } finally {
+        if (resourceMeta.hasResourceId()) {
+          parentCollection
+              .call(remoteClient -> remoteClient.closeResource(resourceMeta.getResourceId()));
+        }
+      }
     }
   }
 
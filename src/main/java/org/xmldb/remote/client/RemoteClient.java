@@ -10,12 +10,33 @@
  */
 package org.xmldb.remote.client;
 
+import static io.grpc.Metadata.ASCII_STRING_MARSHALLER;
 import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+import static org.xmldb.remote.client.Constants.COLLECTION_CACHE_TTL;
+import static org.xmldb.remote.client.Constants.DEFAULT_QUERY_CACHE_SIZE;
+import static org.xmldb.remote.client.Constants.DEFAULT_READ_TIMEOUT;
+import static org.xmldb.remote.client.Constants.LIST_READ_TIMEOUT;
+import static org.xmldb.remote.client.Constants.LOAD_READ_TIMEOUT;
+import static org.xmldb.remote.client.Constants.QUERY_CACHE_SIZE;
+import static org.xmldb.remote.client.Constants.QUERY_READ_TIMEOUT;
+import static org.xmldb.remote.client.Constants.STORE_WRITE_TIMEOUT;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,22 +44,36 @@ import org.xmldb.api.base.ResourceType;
 import org.xmldb.api.base.XMLDBException;
 import org.xmldb.api.grpc.ChildCollectionName;
 import org.xmldb.api.grpc.CollectionMeta;
+import org.xmldb.api.grpc.CollectionPath;
+import org.xmldb.api.grpc.CompileRequest;
 import org.xmldb.api.grpc.Count;
 import org.xmldb.api.grpc.CreateResourceMeta;
 import org.xmldb.api.grpc.Empty;
 import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.IdBlockRequest;
+import org.xmldb.api.grpc.NamespaceContext;
+import org.xmldb.api.grpc.QueryPageRequest;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
 import org.xmldb.api.grpc.ResourceData;
 import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.ResourceIdBlock;
+import org.xmldb.api.grpc.ResourceIds;
 import org.xmldb.api.grpc.ResourceLoadRequest;
 import org.xmldb.api.grpc.ResourceMeta;
 import org.xmldb.api.grpc.ResourceStoreRequest;
+import org.xmldb.api.grpc.ResourceTransferStatus;
 import org.xmldb.api.grpc.RootCollectionName;
 import org.xmldb.api.grpc.SystemInfo;
 import org.xmldb.api.grpc.XmlDbServiceGrpc;
 
+import com.google.protobuf.ByteString;
+
 import io.grpc.CallCredentials;
 import io.grpc.Channel;
-import io.grpc.InsecureChannelCredentials;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.Status;
 import io.grpc.StatusException;
 import io.grpc.stub.StreamObserver;
 
@@ -46,24 +81,133 @@ import io.grpc.stub.StreamObserver;
  * The {@code RemoteClient} class provides a client for interacting with a remote XML database over
  * gRPC. It encapsulates operations to manage and query the database system, collections, and
  * resources.
+ * <p>
+ * The underlying gRPC channel is shared with other clients connecting to the same endpoint. A
+ * client is reference counted and releases the channel once the last reference has been closed.
  */
-public final class RemoteClient {
+public final class RemoteClient implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(RemoteClient.class);
+
+  /**
+   * Trailer sent along with {@link Status.Code#NOT_FOUND} naming the kind of handle the server
+   * does not know.
+   */
+  static final Metadata.Key<String> UNKNOWN_HANDLE =
+      Metadata.Key.of("xmldb-unknown-handle", ASCII_STRING_MARSHALLER);
+  /** The {@link #UNKNOWN_HANDLE} value of a compiled query. */
+  static final String COMPILED_HANDLE = "compiled";
+  /** The {@link #UNKNOWN_HANDLE} value of a namespace context. */
+  static final String NAMESPACE_CONTEXT_HANDLE = "namespace-context";
+
   private static final Empty EMPTY = Empty.getDefaultInstance();
+  private static final int OPEN_RESOURCES_WINDOW = 64;
 
   private final XmlDbServiceGrpc.XmlDbServiceStub stub;
   private final XmlDbServiceGrpc.XmlDbServiceBlockingV2Stub blockingStub;
+  private final ConnectionInfo connectionInfo;
+  private final ChunkSizePolicy chunkSizePolicy;
+  private final Runnable closeAction;
+  private final AtomicInteger references;
+  private final CollectionHandleCache collectionHandles;
+  private final CompiledQueryCache compiledQueries;
+  private final Map<NamespaceContext, HandleId> namespaceContexts;
+  private final AtomicBoolean collectionPathSupported;
+  private final AtomicBoolean openResourcesSupported;
+  private final AtomicBoolean createIdsSupported;
+  private final AtomicBoolean storeInlineSupported;
+  private final AtomicBoolean storeCreateConfirmed;
+  private final AtomicBoolean compileSupported;
+  private final AtomicBoolean queryCursorSupported;
+  private final AtomicBoolean registerNamespacesSupported;
+  private final Duration listReadTimeout;
+  private final Duration loadReadTimeout;
+  private final Duration queryReadTimeout;
+  private final Duration storeWriteTimeout;
+  private final DeadlinePolicy deadlinePolicy;
+  private final CompressionPolicy compressionPolicy;
+
+  /**
+   * Initializes a new instance of the {@code RemoteClient} class with the specified gRPC channel,
+   * call credentials and connection information.
+   *
+   * @param channel the gRPC channel to communicate with the server
+   * @param callCredentials the call credentials for the gRPC communication
+   * @param connectionInfo the connection details providing the client settings
+   */
+  RemoteClient(final Channel channel, final CallCredentials callCredentials,
+      final ConnectionInfo connectionInfo) {
+    this(channel, callCredentials, connectionInfo, () -> {
+    });
+  }
 
   /**
-   * Initializes a new instance of the {@code RemoteClient} class with the specified gRPC channel
-   * and call credentials.
+   * Initializes a new instance of the {@code RemoteClient} class with the specified gRPC channel,
+   * call credentials, connection information and the action to be run when the client gets closed.
    *
    * @param channel the gRPC channel to communicate with the server
    * @param callCredentials the call credentials for the gRPC communication
+   * @param connectionInfo the connection details providing the client settings
+   * @param closeAction the action releasing the channel on close
    */
-  RemoteClient(final Channel channel, final CallCredentials callCredentials) {
+  RemoteClient(final Channel channel, final CallCredentials callCredentials,
+      final ConnectionInfo connectionInfo, final Runnable closeAction) {
+    this(channel, callCredentials, connectionInfo, Settings.of(connectionInfo), closeAction);
+  }
+
+  private RemoteClient(final Channel channel, final CallCredentials callCredentials,
+      final ConnectionInfo connectionInfo, final Settings settings, final Runnable closeAction) {
     blockingStub = XmlDbServiceGrpc.newBlockingV2Stub(channel).withCallCredentials(callCredentials);
     stub = XmlDbServiceGrpc.newStub(channel).withCallCredentials(callCredentials);
+    this.connectionInfo = connectionInfo;
+    this.chunkSizePolicy = settings.chunkSizePolicy();
+    this.closeAction = closeAction;
+    this.references = new AtomicInteger(1);
+    this.collectionHandles =
+        new CollectionHandleCache(settings.collectionCacheTtl(), this::closeCollection);
+    this.compiledQueries = new CompiledQueryCache(settings.queryCacheSize(), this::releaseCompiled);
+    this.namespaceContexts = new ConcurrentHashMap<>();
+    this.collectionPathSupported = new AtomicBoolean(true);
+    this.openResourcesSupported = new AtomicBoolean(true);
+    this.createIdsSupported = new AtomicBoolean(true);
+    this.storeInlineSupported = new AtomicBoolean(true);
+    this.storeCreateConfirmed = new AtomicBoolean();
+    this.compileSupported = new AtomicBoolean(true);
+    this.queryCursorSupported = new AtomicBoolean(true);
+    this.registerNamespacesSupported = new AtomicBoolean(true);
+    this.listReadTimeout = settings.listReadTimeout();
+    this.loadReadTimeout = settings.loadReadTimeout();
+    this.queryReadTimeout = settings.queryReadTimeout();
+    this.storeWriteTimeout = settings.storeWriteTimeout();
+    this.deadlinePolicy = settings.deadlinePolicy();
+    this.compressionPolicy = settings.compressionPolicy();
+  }
+
+  /**
+   * The client settings parsed from the connection properties.
+   */
+  private record Settings(ChunkSizePolicy chunkSizePolicy, Duration collectionCacheTtl,
+      int queryCacheSize, Duration listReadTimeout, Duration loadReadTimeout,
+      Duration queryReadTimeout, Duration storeWriteTimeout, DeadlinePolicy deadlinePolicy,
+      CompressionPolicy compressionPolicy) {
+    /**
+     * Parses the client settings of the given connection.
+     *
+     * @param connectionInfo the connection details providing the client settings
+     * @return the parsed settings
+     * @throws IllegalArgumentException if a property value is not valid
+     * @throws ArithmeticException if the query cache size exceeds the integer range
+     */
+    static Settings of(ConnectionInfo connectionInfo) {
+      return new Settings(ChunkSizePolicy.of(connectionInfo),
+          connectionInfo.durationProperty(COLLECTION_CACHE_TTL, 0),
+          Math.toIntExact(connectionInfo.longProperty(QUERY_CACHE_SIZE, DEFAULT_QUERY_CACHE_SIZE)),
+          connectionInfo.durationProperty(LIST_READ_TIMEOUT, DEFAULT_READ_TIMEOUT),
+          connectionInfo.durationProperty(LOAD_READ_TIMEOUT, DEFAULT_READ_TIMEOUT),
+          connectionInfo.durationProperty(QUERY_READ_TIMEOUT, DEFAULT_READ_TIMEOUT),
+          connectionInfo.durationProperty(STORE_WRITE_TIMEOUT, DEFAULT_READ_TIMEOUT),
+          DeadlinePolicy.of(connectionInfo.info()::getProperty),
+          CompressionPolicy.of(connectionInfo.info()::getProperty));
+    }
   }
 
   private static XMLDBException handleStatusException(StatusException e) {
@@ -71,27 +215,194 @@ public final class RemoteClient {
     return new XMLDBException(VENDOR_ERROR, e.getStatus().getDescription(), e);
   }
 
+  /**
+   * Converts the failure reported by an asynchronous call into an {@link XMLDBException}.
+   *
+   * @param throwable the failure of the call
+   * @return the exception to be reported to the caller
+   */
+  static XMLDBException handleCallFailure(Throwable throwable) {
+    if (throwable instanceof StatusException statusException) {
+      return handleStatusException(statusException);
+    }
+    return handleStatusException(Status.fromThrowable(throwable)
+        .asException(Status.trailersFromThrowable(throwable)));
+  }
+
+  /**
+   * Converts the failure of reading the next message from a {@link ClientCallIterator} into an
+   * {@link XMLDBException}.
+   *
+   * @param e the failure thrown by the iterator
+   * @return the exception to be reported to the caller
+   */
+  static XMLDBException handleIteratorFailure(IllegalStateException e) {
+    if (e.getCause() instanceof StatusException statusException) {
+      return handleStatusException(statusException);
+    }
+    return new XMLDBException(VENDOR_ERROR, e);
+  }
+
+  /**
+   * Returns whether the given exception was caused by a call the server does not implement.
+   *
+   * @param e the exception to check
+   * @return {@code true} if the server responded with {@link Status.Code#UNIMPLEMENTED}
+   */
+  static boolean isUnimplemented(XMLDBException e) {
+    return e.getCause() instanceof StatusException statusException
+        && statusException.getStatus().getCode() == Status.Code.UNIMPLEMENTED;
+  }
+
   /**
    * Creates and returns a new instance of {@code RemoteClient} using the specified connection
-   * information.
+   * information. The client uses the channel shared for the given host, port and credentials, which
+   * is released by {@link #close()}.
    *
    * @param connectionInfo the connection details including host, port, database path, and
    *        authentication properties
    * @return a newly created instance of {@code RemoteClient}
+   * @throws XMLDBException if a connection property is not valid, like an unknown compression
+   */
+  public static RemoteClient create(ConnectionInfo connectionInfo) throws XMLDBException {
+    final ChannelRegistry registry = ChannelRegistry.getInstance();
+    final Settings settings;
+    final ChannelRegistry.SharedChannel sharedChannel;
+    try {
+      // parsed before acquiring the channel, so that invalid settings do not leak a reference
+      settings = Settings.of(connectionInfo);
+      sharedChannel = registry.acquire(connectionInfo);
+    } catch (IllegalArgumentException | ArithmeticException e) {
+      throw new XMLDBException(VENDOR_ERROR, "Invalid connection settings: " + e.getMessage(), e);
+    }
+    try {
+      return new RemoteClient(sharedChannel.channel(),
+          new AuthenticationCredentials(connectionInfo::authentication), connectionInfo, settings,
+          () -> registry.release(sharedChannel));
+    } catch (RuntimeException | Error e) {
+      registry.release(sharedChannel);
+      throw e;
+    }
+  }
+
+  /**
+   * Acquires an additional reference to this client, which has to be released by calling
+   * {@link #close()}.
+   *
+   * @return {@code true} if the reference was acquired, {@code false} if the client is already
+   *         closed
    */
-  public static RemoteClient create(ConnectionInfo connectionInfo) {
-    return new RemoteClient(connectionInfo.openChannel(InsecureChannelCredentials::create),
-        new AuthenticationCredentials(connectionInfo::authentication));
+  boolean retain() {
+    return references.getAndUpdate(count -> count > 0 ? count + 1 : count) > 0;
+  }
+
+  /**
+   * Releases one reference to this client. Releasing the last reference closes the client and
+   * releases its reference to the shared channel. Any further call has no effect.
+   */
+  @Override
+  public void close() {
+    if (references.getAndUpdate(count -> count > 0 ? count - 1 : count) == 1) {
+      LOGGER.debug("close()");
+      try {
+        compiledQueries.clear();
+        collectionHandles.clear();
+      } finally {
+        closeAction.run();
+      }
+    }
+  }
+
+  /**
+   * Returns the host and port of the server this client is connected to.
+   *
+   * @return the server endpoint
+   */
+  String endpoint() {
+    return "%s:%d".formatted(connectionInfo.host(), connectionInfo.port());
+  }
+
+  /**
+   * Returns the value of the given connection property of this client.
+   *
+   * @param name the name of the property
+   * @return the property value or {@code null} if not defined
+   */
+  String setting(String name) {
+    return connectionInfo.info().getProperty(name);
+  }
+
+  /**
+   * Returns the chunk size policy defined by the connection properties of this client.
+   *
+   * @return the chunk size policy
+   */
+  ChunkSizePolicy chunkSizePolicy() {
+    return chunkSizePolicy;
+  }
+
+  /**
+   * Returns the deadline policy defined by the connection properties of this client.
+   *
+   * @return the deadline policy
+   */
+  DeadlinePolicy deadlinePolicy() {
+    return deadlinePolicy;
+  }
+
+  /**
+   * Returns the compression policy defined by the connection properties of this client.
+   *
+   * @return the compression policy
+   */
+  CompressionPolicy compressionPolicy() {
+    return compressionPolicy;
+  }
+
+  /**
+   * Returns the cache of the child collection handles opened by this client.
+   *
+   * @return the collection handle cache
+   */
+  CollectionHandleCache collectionHandles() {
+    return collectionHandles;
   }
 
   <T> T withStub(RemoteAction<T> action) throws XMLDBException {
+    return withStub(deadlinePolicy.metadataDeadline(), action);
+  }
+
+  <T> T withStub(Deadline deadline, RemoteAction<T> action) throws XMLDBException {
     try {
-      return action.apply(blockingStub);
+      return action.apply(blockingStub.withDeadline(deadline));
     } catch (StatusException e) {
       throw handleStatusException(e);
     }
   }
 
+  <T> void withAsyncStub(Deadline deadline, AsyncRemoteAction<T> action,
+      StreamObserver<T> observer) {
+    try {
+      action.apply(stub.withDeadline(deadline), observer);
+    } catch (RuntimeException e) {
+      observer.onError(e);
+    }
+  }
+
+  <T> CompletableFuture<List<T>> withAsyncStub(Deadline deadline, AsyncRemoteAction<T> action) {
+    final FutureStreamObserver<T> observer = new FutureStreamObserver<>();
+    withAsyncStub(deadline, action, observer);
+    return observer.future();
+  }
+
+  <T> CompletableFuture<T> withAsyncUnaryStub(AsyncRemoteAction<T> action) {
+    return withAsyncStub(deadlinePolicy.metadataDeadline(), action)
+        .thenCompose(values -> values.isEmpty()
+            ? CompletableFuture.failedFuture(
+                new XMLDBException(VENDOR_ERROR, "Missing response of a unary call"))
+            : CompletableFuture.completedFuture(values.getFirst()));
+  }
+
   /**
    * Retrieves system information from the remote XML database.
    *
@@ -105,6 +416,18 @@ public final class RemoteClient {
     return withStub(stub -> stub.systemInfo(EMPTY));
   }
 
+  /**
+   * Retrieves system information from the remote XML database without blocking the calling thread.
+   * The returned future completes on a thread of the gRPC channel.
+   *
+   * @return the future of the system information, failing with an {@code XMLDBException} if the
+   *         retrieval fails
+   */
+  public CompletableFuture<SystemInfo> systemInfoAsync() {
+    LOGGER.debug("systemInfoAsync()");
+    return withAsyncUnaryStub((asyncStub, observer) -> asyncStub.systemInfo(EMPTY, observer));
+  }
+
   CollectionMeta openRootCollection(String uri, Properties info) throws XMLDBException {
     LOGGER.debug("openRootCollection({}, {}})", uri, info);
     return withStub(stub -> {
@@ -122,14 +445,76 @@ public final class RemoteClient {
         .setCollectionId(collectionHandle).setChildName(collectionName).build()));
   }
 
+  /**
+   * Opens the collection at the given path relative to the given collection in a single call. If
+   * the server does not support resolving paths, the segments are opened one after the other.
+   *
+   * @param collectionHandle the handle of the collection to start from
+   * @param segments the non empty names of the collections along the path
+   * @return the metadata of the collection, with an empty name if it does not exist
+   * @throws XMLDBException if the collection could not be opened
+   */
+  CollectionMeta openCollectionPath(HandleId collectionHandle, List<String> segments)
+      throws XMLDBException {
+    if (segments.size() == 1) {
+      return openChildCollection(collectionHandle, segments.getFirst());
+    }
+    if (collectionPathSupported.get()) {
+      LOGGER.debug("openCollectionPath({}, {})", collectionHandle, segments);
+      try {
+        return withStub(stub -> stub.openCollectionPath(CollectionPath.newBuilder()
+            .setCollectionId(collectionHandle).addAllSegments(segments).build()));
+      } catch (XMLDBException e) {
+        if (!isUnimplemented(e)) {
+          throw e;
+        }
+        LOGGER.debug("Server does not resolve collection paths, opening segments");
+        collectionPathSupported.set(false);
+      }
+    }
+    CollectionMeta collectionMeta = openChildCollection(collectionHandle, segments.getFirst());
+    for (String segment : segments.subList(1, segments.size())) {
+      if (collectionMeta.getName().isEmpty()) {
+        break;
+      }
+      final HandleId intermediate = collectionMeta.getCollectionId();
+      try {
+        collectionMeta = openChildCollection(intermediate, segment);
+      } finally {
+        closeCollection(intermediate);
+      }
+    }
+    return collectionMeta;
+  }
+
   Count resourceCount(HandleId collectionHandle) throws XMLDBException {
     LOGGER.debug("resourceCount({})", collectionHandle);
     return withStub(stub -> stub.resourceCount(collectionHandle));
   }
 
-  Iterator<ResourceId> listResources(HandleId collectionHandle) throws XMLDBException {
+  CompletableFuture<Count> resourceCountAsync(HandleId collectionHandle) {
+    LOGGER.debug("resourceCountAsync({})", collectionHandle);
+    return withAsyncUnaryStub(
+        (asyncStub, observer) -> asyncStub.resourceCount(collectionHandle, observer));
+  }
+
+  ClientCallIterator<ResourceId> listResources(HandleId collectionHandle) throws XMLDBException {
     LOGGER.debug("listResources({})", collectionHandle);
-    return withStub(stub -> new ClientCallIterator<>(stub.listResources(collectionHandle)));
+    return withStub(deadlinePolicy.listingDeadline(),
+        stub -> new ClientCallIterator<>(stub.listResources(collectionHandle), listReadTimeout));
+  }
+
+  <R> Flow.Publisher<R> listResourcesPublisher(HandleId collectionHandle,
+      Function<ResourceId, R> mapper) {
+    LOGGER.debug("listResourcesPublisher({})", collectionHandle);
+    return new CallPublisher<>(this, deadlinePolicy::listingDeadline,
+        (asyncStub, observer) -> asyncStub.listResources(collectionHandle, observer), mapper);
+  }
+
+  CompletableFuture<List<ResourceId>> listResourcesAsync(HandleId collectionHandle) {
+    LOGGER.debug("listResourcesAsync({})", collectionHandle);
+    return withAsyncStub(deadlinePolicy.listingDeadline(),
+        (asyncStub, observer) -> asyncStub.listResources(collectionHandle, observer));
   }
 
   Count collectionCount(HandleId collectionHandle) throws XMLDBException {
@@ -137,9 +522,30 @@ public final class RemoteClient {
     return withStub(stub -> stub.collectionCount(collectionHandle));
   }
 
-  Iterator<ChildCollectionName> childCollections(HandleId collectionHandle) throws XMLDBException {
+  CompletableFuture<Count> collectionCountAsync(HandleId collectionHandle) {
+    LOGGER.debug("collectionCountAsync({})", collectionHandle);
+    return withAsyncUnaryStub(
+        (asyncStub, observer) -> asyncStub.collectionCount(collectionHandle, observer));
+  }
+
+  ClientCallIterator<ChildCollectionName> childCollections(HandleId collectionHandle)
+      throws XMLDBException {
     LOGGER.debug("childCollections({})", collectionHandle);
-    return withStub(stub -> new ClientCallIterator<>(stub.childCollections(collectionHandle)));
+    return withStub(deadlinePolicy.listingDeadline(), stub -> new ClientCallIterator<>(
+        stub.childCollections(collectionHandle), listReadTimeout));
+  }
+
+  <R> Flow.Publisher<R> childCollectionsPublisher(HandleId collectionHandle,
+      Function<ChildCollectionName, R> mapper) {
+    LOGGER.debug("childCollectionsPublisher({})", collectionHandle);
+    return new CallPublisher<>(this, deadlinePolicy::listingDeadline,
+        (asyncStub, observer) -> asyncStub.childCollections(collectionHandle, observer), mapper);
+  }
+
+  CompletableFuture<List<ChildCollectionName>> childCollectionsAsync(HandleId collectionHandle) {
+    LOGGER.debug("childCollectionsAsync({})", collectionHandle);
+    return withAsyncStub(deadlinePolicy.listingDeadline(),
+        (asyncStub, observer) -> asyncStub.childCollections(collectionHandle, observer));
   }
 
   void closeCollection(HandleId collectionHandle) throws XMLDBException {
@@ -147,13 +553,17 @@ public final class RemoteClient {
     withStub(stub -> stub.closeCollection(collectionHandle));
   }
 
-  ResourceMeta createResource(HandleId collectionHandle, String resourceId, ResourceType type,
-      String contentType) throws XMLDBException {
-    LOGGER.debug("createResource({}, {})", collectionHandle, resourceId);
-    return withStub(stub -> stub.createResource(CreateResourceMeta.newBuilder()
+  ResourceMeta createResource(CreateResourceMeta createResourceMeta) throws XMLDBException {
+    LOGGER.debug("createResource({})", createResourceMeta.getResourceId());
+    return withStub(stub -> stub.createResource(createResourceMeta));
+  }
+
+  CreateResourceMeta createResourceMeta(HandleId collectionHandle, String resourceId,
+      ResourceType type, String contentType) {
+    return CreateResourceMeta.newBuilder()
         .setResourceId(ResourceId.newBuilder().setCollectionId(collectionHandle)
             .setResourceId(resourceId).build())
-        .setType(convert(type)).setContentType(contentType).build()));
+        .setType(convert(type)).setContentType(contentType).build();
   }
 
   org.xmldb.api.grpc.ResourceType convert(ResourceType type) {
@@ -169,6 +579,119 @@ public final class RemoteClient {
         .setCollectionId(collectionHandle).setResourceId(resourceId).build()));
   }
 
+  CompletableFuture<ResourceMeta> openResourceAsync(HandleId collectionHandle,
+      String resourceId) {
+    LOGGER.debug("openResourceAsync({}, {})", collectionHandle, resourceId);
+    return withAsyncUnaryStub((asyncStub, observer) -> asyncStub.openResource(ResourceId
+        .newBuilder().setCollectionId(collectionHandle).setResourceId(resourceId).build(),
+        observer));
+  }
+
+  /**
+   * Opens the resources with the given ids in a single call. If the server does not support opening
+   * multiple resources at once, the resources are opened by concurrent single calls.
+   *
+   * @param collectionHandle the handle of the collection containing the resources
+   * @param resourceIds the ids of the resources
+   * @return the metadata of the resources in the order of the given ids, with {@code null} for a
+   *         resource that does not exist
+   * @throws XMLDBException if the resources could not be opened
+   */
+  List<ResourceMeta> openResources(HandleId collectionHandle, List<String> resourceIds)
+      throws XMLDBException {
+    if (resourceIds.isEmpty()) {
+      return List.of();
+    }
+    if (openResourcesSupported.get()) {
+      LOGGER.debug("openResources({}, {})", collectionHandle, resourceIds);
+      try {
+        final List<ResourceMeta> resourceMetas = readAll(withStub(deadlinePolicy.listingDeadline(),
+            stub -> new ClientCallIterator<>(stub.openResources(ResourceIds.newBuilder()
+                .setCollectionId(collectionHandle).addAllResourceIds(resourceIds).build()),
+                listReadTimeout)));
+        if (resourceMetas.size() != resourceIds.size()) {
+          throw new XMLDBException(VENDOR_ERROR, "Expected %d resources but received %d"
+              .formatted(resourceIds.size(), resourceMetas.size()));
+        }
+        resourceMetas.replaceAll(meta -> meta.hasResourceId() ? meta : null);
+        return resourceMetas;
+      } catch (XMLDBException e) {
+        if (!isUnimplemented(e)) {
+          throw e;
+        }
+        LOGGER.debug("Server does not open multiple resources, opening them one by one");
+        openResourcesSupported.set(false);
+      }
+    }
+    final List<ResourceMeta> resourceMetas = new ArrayList<>(resourceIds.size());
+    for (int start = 0; start < resourceIds.size(); start += OPEN_RESOURCES_WINDOW) {
+      final List<CompletableFuture<ResourceMeta>> pending = resourceIds
+          .subList(start, Math.min(start + OPEN_RESOURCES_WINDOW, resourceIds.size())).stream()
+          .map(resourceId -> openResourceAsync(collectionHandle, resourceId)).toList();
+      try {
+        for (CompletableFuture<ResourceMeta> future : pending) {
+          final ResourceMeta resourceMeta = await(future);
+          resourceMetas.add(resourceMeta.hasResourceId() ? resourceMeta : null);
+        }
+      } catch (XMLDBException e) {
+        // do not leak the handles of the resources opened so far
+        resourceMetas.subList(0, start).forEach(this::closeResourceQuietly);
+        pending.forEach(future -> future.thenAccept(this::closeResourceQuietly));
+        throw e;
+      }
+    }
+    return resourceMetas;
+  }
+
+  private void closeResourceQuietly(ResourceMeta resourceMeta) {
+    if (resourceMeta != null && resourceMeta.hasResourceId()) {
+      withAsyncUnaryStub((asyncStub, observer) -> asyncStub
+          .closeResource(resourceMeta.getResourceId(), observer)).exceptionally(e -> {
+            LOGGER.warn("Failed to close resource {}", resourceMeta.getResourceId(), e);
+            return null;
+          });
+    }
+  }
+
+  private static <T> List<T> readAll(ClientCallIterator<T> iterator) throws XMLDBException {
+    try (iterator) {
+      final List<T> values = new ArrayList<>();
+      iterator.forEachRemaining(values::add);
+      return values;
+    } catch (IllegalStateException e) {
+      throw handleIteratorFailure(e);
+    }
+  }
+
+  /**
+   * Waits for the result of the given future.
+   *
+   * @param future the future to wait for
+   * @param <T> the result type
+   * @return the result of the future
+   * @throws XMLDBException if the future failed or the calling thread was interrupted
+   */
+  static <T> T await(CompletableFuture<T> future) throws XMLDBException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new XMLDBException(VENDOR_ERROR, e);
+    } catch (ExecutionException e) {
+      final Throwable cause = unwrap(e.getCause());
+      if (cause instanceof XMLDBException xmldbException) {
+        throw xmldbException;
+      }
+      throw new XMLDBException(VENDOR_ERROR, cause);
+    }
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    return throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause()
+        : throwable;
+  }
+
   void closeResource(HandleId resourceHandle) throws XMLDBException {
     LOGGER.debug("closeResource({})", resourceHandle);
     withStub(stub -> stub.closeResource(resourceHandle));
@@ -179,35 +702,345 @@ public final class RemoteClient {
     withStub(stub -> stub.removeResource(resourceHandle));
   }
 
+  CompletableFuture<Empty> removeResourceAsync(HandleId resourceHandle) {
+    LOGGER.debug("removeResourceAsync({})", resourceHandle);
+    return withAsyncUnaryStub(
+        (asyncStub, observer) -> asyncStub.removeResource(resourceHandle, observer));
+  }
+
   String createId(HandleId collectionHandle) throws XMLDBException {
     LOGGER.debug("createId({})", collectionHandle);
     return withStub(stub -> stub.createId(collectionHandle)).getResourceId();
   }
 
-  Iterator<ResourceData> loadResource(ResourceLoadRequest request) throws XMLDBException {
-    LOGGER.debug("loadResource({})", request);
-    return withStub(stub -> new ClientCallIterator<>(stub.loadResourceData(request)));
+  CompletableFuture<String> createIdAsync(HandleId collectionHandle) {
+    LOGGER.debug("createIdAsync({})", collectionHandle);
+    return this.<ResourceId>withAsyncUnaryStub(
+        (asyncStub, observer) -> asyncStub.createId(collectionHandle, observer))
+        .thenApply(ResourceId::getResourceId);
+  }
+
+  /**
+   * Creates a block of new unique resource ids for the given collection.
+   *
+   * @param collectionHandle the handle of the collection
+   * @param count the number of ids to create
+   * @return the future of the new ids, completed with an empty list if the server does not create
+   *         blocks of ids
+   */
+  CompletableFuture<List<String>> createIdsAsync(HandleId collectionHandle, int count) {
+    if (!createIdsSupported.get()) {
+      return CompletableFuture.completedFuture(List.of());
+    }
+    LOGGER.debug("createIdsAsync({}, {})", collectionHandle, count);
+    return this.<ResourceIdBlock>withAsyncUnaryStub((asyncStub, observer) -> asyncStub.createIds(
+        IdBlockRequest.newBuilder().setCollectionId(collectionHandle).setCount(count).build(),
+        observer)).<List<String>>thenApply(ResourceIdBlock::getResourceIdsList)
+        .exceptionallyCompose(failure -> {
+          if (unwrap(failure) instanceof XMLDBException e && isUnimplemented(e)) {
+            LOGGER.debug("Server does not create blocks of ids, creating them one by one");
+            createIdsSupported.set(false);
+            return CompletableFuture.completedFuture(List.of());
+          }
+          return CompletableFuture.failedFuture(failure);
+        });
+  }
+
+  ClientCallIterator<QueryResult> query(QueryRequest request) throws XMLDBException {
+    LOGGER.debug("query({})", request);
+    return withStub(deadlinePolicy.listingDeadline(),
+        stub -> new ClientCallIterator<>(stub.query(request), queryReadTimeout));
+  }
+
+  /**
+   * Evaluates the query of the given request and waits for the first result chunk, so that a
+   * failing evaluation is reported by this call instead of by reading the result.
+   *
+   * @param request the query request
+   * @return the iterator of the result chunks
+   * @throws XMLDBException if the query could not be evaluated
+   */
+  ClientCallIterator<QueryResult> startQuery(QueryRequest request) throws XMLDBException {
+    final ClientCallIterator<QueryResult> results = query(request);
+    try {
+      results.hasNext();
+      return results;
+    } catch (IllegalStateException e) {
+      throw handleIteratorFailure(e);
+    }
+  }
+
+  /**
+   * Evaluates the query of the given request keeping the result on the server.
+   *
+   * @param request the query request
+   * @return the handle of the cursor, or {@code null} if the server does not support cursors
+   * @throws XMLDBException if the query could not be evaluated
+   */
+  HandleId openQueryCursor(QueryRequest request) throws XMLDBException {
+    if (!queryCursorSupported.get()) {
+      return null;
+    }
+    LOGGER.debug("openQueryCursor({})", request);
+    try {
+      return withStub(stub -> stub.openQueryCursor(request));
+    } catch (XMLDBException e) {
+      if (!isUnimplemented(e)) {
+        throw e;
+      }
+      LOGGER.debug("Server does not support query cursors, streaming the result");
+      queryCursorSupported.set(false);
+      return null;
+    }
+  }
+
+  CompletableFuture<List<QueryResult>> fetchQueryPageAsync(HandleId cursorHandle, long offset,
+      int count) {
+    LOGGER.debug("fetchQueryPageAsync({}, {}, {})", cursorHandle, offset, count);
+    final QueryPageRequest request = QueryPageRequest.newBuilder().setCursorId(cursorHandle)
+        .setOffset(offset).setCount(count).build();
+    return withAsyncStub(deadlinePolicy.listingDeadline(),
+        (asyncStub, observer) -> asyncStub.fetchQueryPage(request, observer));
+  }
+
+  Count queryCursorSize(HandleId cursorHandle) throws XMLDBException {
+    LOGGER.debug("queryCursorSize({})", cursorHandle);
+    return withStub(deadlinePolicy.listingDeadline(), stub -> stub.queryCursorSize(cursorHandle));
+  }
+
+  void closeQueryCursor(HandleId cursorHandle) throws XMLDBException {
+    LOGGER.debug("closeQueryCursor({})", cursorHandle);
+    withStub(stub -> stub.closeQueryCursor(cursorHandle));
+  }
+
+  /**
+   * Returns whether the given exception was caused by a handle of the given kind the server does
+   * not know, like an expired compiled query or namespace context. Other causes of
+   * {@link Status.Code#NOT_FOUND}, like a missing resource, are not reported as unknown handle.
+   *
+   * @param e the exception to check
+   * @param kind the kind of handle, either {@link #COMPILED_HANDLE} or
+   *        {@link #NAMESPACE_CONTEXT_HANDLE}
+   * @return {@code true} if the server responded with {@link Status.Code#NOT_FOUND} naming the
+   *         given kind in the {@link #UNKNOWN_HANDLE} trailer
+   */
+  static boolean isUnknownHandle(XMLDBException e, String kind) {
+    if (e.getCause() instanceof StatusException statusException
+        && statusException.getStatus().getCode() == Status.Code.NOT_FOUND) {
+      final Metadata trailers = statusException.getTrailers();
+      return trailers != null && kind.equals(trailers.get(UNKNOWN_HANDLE));
+    }
+    return false;
+  }
+
+  /**
+   * Returns the handle of the given query compiled on the server, reusing the handle of a query
+   * compiled before.
+   *
+   * @param request the query to compile
+   * @return the handle of the compiled query, or {@code null} if queries are not kept compiled
+   * @throws XMLDBException if the query could not be compiled
+   */
+  HandleId compile(CompileRequest request) throws XMLDBException {
+    return compiledQueries.handle(request, this::compileQuery);
+  }
+
+  /**
+   * Drops the handle of a compiled query the server reported as unknown.
+   *
+   * @param request the compiled query
+   * @param compiledHandle the handle no longer valid
+   */
+  void invalidateCompiled(CompileRequest request, HandleId compiledHandle) {
+    compiledQueries.invalidate(request, compiledHandle);
+  }
+
+  private HandleId compileQuery(CompileRequest request) throws XMLDBException {
+    if (!compileSupported.get()) {
+      return null;
+    }
+    LOGGER.debug("compile({})", request);
+    try {
+      return withStub(stub -> stub.compile(request));
+    } catch (XMLDBException e) {
+      if (!isUnimplemented(e)) {
+        throw e;
+      }
+      LOGGER.debug("Server does not compile queries, sending the query text");
+      compileSupported.set(false);
+      return null;
+    }
+  }
+
+  private void releaseCompiled(HandleId compiledHandle) throws XMLDBException {
+    LOGGER.debug("releaseCompiled({})", compiledHandle);
+    withStub(stub -> stub.releaseCompiled(compiledHandle));
+  }
+
+  /**
+   * Returns the handle of the given namespace bindings registered on the server. Each distinct set
+   * of bindings is registered once per client and kept by the server for the session.
+   *
+   * @param namespaceContext the namespace bindings
+   * @return the handle of the registered bindings, or {@code null} if the server does not register
+   *         namespace bindings
+   * @throws XMLDBException if the bindings could not be registered
+   */
+  HandleId namespaceContext(NamespaceContext namespaceContext) throws XMLDBException {
+    final HandleId registered = namespaceContexts.get(namespaceContext);
+    if (registered != null || !registerNamespacesSupported.get()) {
+      return registered;
+    }
+    LOGGER.debug("registerNamespaces({})", namespaceContext);
+    try {
+      final HandleId contextHandle =
+          withStub(stub -> stub.registerNamespaces(namespaceContext));
+      final HandleId concurrent = namespaceContexts.putIfAbsent(namespaceContext, contextHandle);
+      return concurrent == null ? contextHandle : concurrent;
+    } catch (XMLDBException e) {
+      if (!isUnimplemented(e)) {
+        throw e;
+      }
+      LOGGER.debug("Server does not register namespaces, sending them with every query");
+      registerNamespacesSupported.set(false);
+      return null;
+    }
+  }
+
+  /**
+   * Drops the handle of namespace bindings the server reported as unknown.
+   *
+   * @param namespaceContext the namespace bindings
+   * @param contextHandle the handle no longer valid
+   */
+  void invalidateNamespaceContext(NamespaceContext namespaceContext, HandleId contextHandle) {
+    namespaceContexts.remove(namespaceContext, contextHandle);
   }
 
-  void storeResource(HandleId collectionHandle, RemoteBaseResource baseResource)
+  ClientCallIterator<ResourceData> loadResource(ResourceLoadRequest request, Deadline deadline)
       throws XMLDBException {
+    LOGGER.debug("loadResource({})", request);
+    return withStub(deadline,
+        stub -> new ClientCallIterator<>(stub.loadResourceData(request), loadReadTimeout));
+  }
+
+  /**
+   * Stores the content of the given resource. Content of known size up to the inline threshold is
+   * sent as a single message, larger content is streamed in chunks. A resource not yet existing on
+   * the server is created by the same call if the server supports it, otherwise by a separate call
+   * before streaming its content.
+   *
+   * @param collectionHandle the handle of the collection containing the resource
+   * @param baseResource the resource to be stored
+   * @param chunkSizePolicy the policy determining the size of streamed chunks
+   * @param deadlinePolicy the policy determining the deadline of the transfer
+   * @param compressionPolicy the policy determining the compression of the content
+   * @param inlineThreshold the maximum content size sent as a single message
+   * @throws XMLDBException if the resource could not be stored
+   */
+  void storeResource(HandleId collectionHandle, RemoteBaseResource baseResource,
+      ChunkSizePolicy chunkSizePolicy, DeadlinePolicy deadlinePolicy,
+      CompressionPolicy compressionPolicy, long inlineThreshold) throws XMLDBException {
     LOGGER.debug("storeResource({}, {})", collectionHandle, baseResource);
-    final ResourceStoreRequest.Builder builder = ResourceStoreRequest.newBuilder()
-        .setResourceId(baseResource.getResourceMeta().getResourceId());
+    final long size = baseResource.transferSize();
+    if (size >= 0 && size <= inlineThreshold && storeInlineSupported.get()) {
+      try {
+        storeInline(baseResource, size, deadlinePolicy, compressionPolicy);
+        return;
+      } catch (XMLDBException e) {
+        if (!isUnimplemented(e)) {
+          throw e;
+        }
+        LOGGER.debug("Server does not store inlined content, streaming it");
+        storeInlineSupported.set(false);
+      }
+    }
+    final CreateResourceMeta creation = baseResource.pendingCreation();
+    if (creation != null && !(storeInlineSupported.get() && storeCreateConfirmed.get())) {
+      // a server not knowing the inline store would ignore the creation of a streamed store
+      baseResource.created(createResource(creation));
+    }
+    streamResource(baseResource, chunkSizePolicy, deadlinePolicy, compressionPolicy);
+  }
+
+  private void storeInline(RemoteBaseResource baseResource, long size,
+      DeadlinePolicy deadlinePolicy, CompressionPolicy compressionPolicy) throws XMLDBException {
+    final ByteString.Output content = ByteString.newOutput(Math.toIntExact(size));
+    baseResource.transferContent(content);
+    final ResourceStoreRequest request =
+        storeRequest(baseResource).setDataChunk(content.toByteString()).build();
+    final ResourceTransferStatus status = withStub(deadlinePolicy.transferDeadline(size),
+        stub -> compressionPolicy.apply(stub, size).storeResource(request));
+    storeCreateConfirmed.set(true);
+    stored(baseResource, status);
+  }
+
+  private void streamResource(RemoteBaseResource baseResource, ChunkSizePolicy chunkSizePolicy,
+      DeadlinePolicy deadlinePolicy, CompressionPolicy compressionPolicy) throws XMLDBException {
+    final ResourceStoreRequest.Builder builder = storeRequest(baseResource);
+    final int chunkSize = chunkSizePolicy.chunkSize(baseResource.getResourceMeta());
     final ResourceTransferStatusObserver storeObserver = new ResourceTransferStatusObserver();
-    final StreamObserver<ResourceStoreRequest> observer = stub.storeResourceData(storeObserver);
-    try (final ResourceTransferOutputStream outputStream =
-        new ResourceTransferOutputStream(builder, observer)) {
-      baseResource.getContentAsStream(outputStream);
-      observer.onCompleted();
-      storeObserver.awaitCompletion();
-    } catch (XMLDBException e) {
+    final long size = baseResource.transferSize();
+    final StreamObserver<ResourceStoreRequest> observer =
+        compressionPolicy.apply(stub.withDeadline(deadlinePolicy.transferDeadline(size)), size)
+            .storeResourceData(storeObserver);
+    final long start = System.nanoTime();
+    final long bytesWritten;
+    try (final ResourceTransferOutputStream outputStream = new ResourceTransferOutputStream(builder,
+        observer, chunkSize, () -> storeObserver.awaitReady(storeWriteTimeout))) {
+      baseResource.transferContent(outputStream);
+      bytesWritten = outputStream.getBytesWritten();
+    } catch (XMLDBException | RuntimeException e) {
+      // cancels the call, which would otherwise stay half-open
       observer.onError(e);
       throw e;
+    } catch (IOException e) {
+      observer.onError(e);
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
+    observer.onCompleted();
+    stored(baseResource, awaitTransferStatus(storeObserver, deadlinePolicy.completionDeadline()));
+    chunkSizePolicy.recordTransfer(chunkSize, bytesWritten, System.nanoTime() - start);
+  }
+
+  private static ResourceStoreRequest.Builder storeRequest(RemoteBaseResource baseResource) {
+    final CreateResourceMeta creation = baseResource.pendingCreation();
+    final ResourceStoreRequest.Builder builder = ResourceStoreRequest.newBuilder();
+    return creation == null ? builder.setResourceId(baseResource.getResourceMeta().getResourceId())
+        : builder.setCreate(creation);
+  }
+
+  private static void stored(RemoteBaseResource baseResource, ResourceTransferStatus status)
+      throws XMLDBException {
+    final boolean hasMeta = status != null && status.hasMeta();
+    if (baseResource.pendingCreation() != null) {
+      if (!hasMeta) {
+        throw new XMLDBException(VENDOR_ERROR, "Missing metadata of the created resource");
+      }
+      baseResource.created(status.getMeta());
+    } else if (hasMeta) {
+      baseResource
+          .setLastModification(Instant.ofEpochMilli(status.getMeta().getLastModificationTime()));
+    }
+  }
+
+  private static ResourceTransferStatus awaitTransferStatus(
+      ResourceTransferStatusObserver storeObserver, Deadline deadline) throws XMLDBException {
+    try {
+      if (!storeObserver.awaitCompletion(deadline)) {
+        storeObserver.cancel("Deadline exceeded awaiting the transfer status");
+        throw new XMLDBException(VENDOR_ERROR,
+            "Resource transfer did not complete before the deadline");
+      }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      observer.onError(e);
+      storeObserver.cancel("Interrupted awaiting the transfer status");
       throw new XMLDBException(VENDOR_ERROR, e);
     }
+    final Throwable cause = storeObserver.getCause();
+    if (cause != null) {
+      throw handleCallFailure(cause);
+    }
+    return storeObserver.getStatus();
   }
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.XMLDBException;
+
+/**
+ * A bounded least recently used cache of {@link RemoteClient} instances keyed by endpoint,
+ * principal and connection properties. The cache holds one reference to each cached client, which
+ * is released when the client gets evicted. Clients handed out by {@link #acquire(ConnectionInfo)}
+ * stay usable until their caller closes them, even if they got evicted meanwhile.
+ */
+final class RemoteClientCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteClientCache.class);
+
+  private final ReentrantLock lock;
+  private final LinkedHashMap<ClientKey, RemoteClient> clients;
+
+  private int maximumSize;
+
+  RemoteClientCache(int maximumSize) {
+    this.lock = new ReentrantLock();
+    this.clients = new LinkedHashMap<>(16, 0.75f, true);
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Returns a client for the given connection, reusing a cached one if available. The returned
+   * reference must be released by calling {@link RemoteClient#close()}.
+   *
+   * @param connectionInfo the connection details
+   * @return a remote client for the given connection
+   * @throws XMLDBException if a connection property is not valid
+   */
+  RemoteClient acquire(ConnectionInfo connectionInfo) throws XMLDBException {
+    final ClientKey key = ClientKey.of(connectionInfo);
+    lock.lock();
+    try {
+      final RemoteClient cached = clients.get(key);
+      if (cached != null && cached.retain()) {
+        return cached;
+      }
+      final RemoteClient remoteClient = RemoteClient.create(connectionInfo);
+      if (maximumSize > 0) {
+        remoteClient.retain();
+        clients.put(key, remoteClient);
+        evictExceeding();
+      }
+      return remoteClient;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Changes the maximum number of cached clients, evicting the least recently used ones exceeding
+   * the new limit.
+   *
+   * @param maximumSize the new maximum size
+   */
+  void resize(int maximumSize) {
+    lock.lock();
+    try {
+      this.maximumSize = Math.max(0, maximumSize);
+      evictExceeding();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Evicts all cached clients.
+   */
+  void clear() {
+    resize(0);
+  }
+
+  private void evictExceeding() {
+    final var iterator = clients.entrySet().iterator();
+    while (clients.size() > maximumSize && iterator.hasNext()) {
+      final Map.Entry<ClientKey, RemoteClient> eldest = iterator.next();
+      iterator.remove();
+      LOGGER.debug("Evicting client for {}", eldest.getKey());
+      eldest.getValue().close();
+    }
+  }
+
+  private record ClientKey(String host, int port, String authentication,
+      Map<String, String> properties) {
+    static ClientKey of(ConnectionInfo connectionInfo) {
+      final Map<String, String> properties = new HashMap<>();
+      connectionInfo.info().forEach(
+          (name, value) -> properties.put(String.valueOf(name), String.valueOf(value)));
+      return new ClientKey(connectionInfo.host(), connectionInfo.port(),
+          connectionInfo.authentication(), Map.copyOf(properties));
+    }
+
+    @Override
+    public String toString() {
+      return "%s:%d".formatted(host, port);
+    }
+  }
+}
@@ -13,15 +13,37 @@ package org.xmldb.remote.client;
 import static java.util.Spliterator.IMMUTABLE;
 import static java.util.Spliterators.spliteratorUnknownSize;
 import static org.xmldb.api.base.ErrorCodes.INVALID_RESOURCE;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
 import static org.xmldb.api.base.ResourceType.BINARY_RESOURCE;
 import static org.xmldb.api.base.ResourceType.XML_RESOURCE;
 import static org.xmldb.api.grpc.ResourceType.BINARY;
 import static org.xmldb.api.grpc.ResourceType.XML;
+import static org.xmldb.remote.client.Constants.CHUNK_SIZE;
+import static org.xmldb.remote.client.Constants.COMPRESSION;
+import static org.xmldb.remote.client.Constants.COMPRESSION_THRESHOLD;
+import static org.xmldb.remote.client.Constants.DEADLINE_TRANSFER;
+import static org.xmldb.remote.client.Constants.DEADLINE_TRANSFER_THROUGHPUT;
+import static org.xmldb.remote.client.Constants.DEFAULT_ID_BLOCK_SIZE;
+import static org.xmldb.remote.client.Constants.DEFAULT_STORE_INLINE_THRESHOLD;
+import static org.xmldb.remote.client.Constants.DEFAULT_STORE_PARALLELISM;
+import static org.xmldb.remote.client.Constants.ID_BLOCK_SIZE;
+import static org.xmldb.remote.client.Constants.STORE_INLINE_THRESHOLD;
+import static org.xmldb.remote.client.Constants.STORE_PARALLELISM;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
@@ -33,6 +55,7 @@ import org.xmldb.api.base.ServiceProviderCache;
 import org.xmldb.api.base.XMLDBException;
 import org.xmldb.api.grpc.ChildCollectionName;
 import org.xmldb.api.grpc.CollectionMeta;
+import org.xmldb.api.grpc.HandleId;
 import org.xmldb.api.grpc.ResourceId;
 import org.xmldb.api.grpc.ResourceMeta;
 import org.xmldb.api.grpc.ResourceType;
@@ -62,15 +85,40 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
 
   private final AtomicBoolean open;
   private final RemoteCollection parent;
+  private final String relativePath;
   private final RemoteClient remoteClient;
   private final CollectionMeta metaData;
+  private final CollectionHandleCache.CachedHandle cachedHandle;
+  private final DocumentCache documentCache;
+  private final AtomicReference<RemoteCollection> resolvedParent;
+  private final AtomicReference<ChunkSizePolicy> chunkSizeOverride;
+  private final AtomicReference<IdAllocator> idAllocator;
   private final ServiceProviderCache serviceProviderCache =
       ServiceProviderCache.withRegistered(this::registerProviders);
 
-  RemoteCollection(RemoteCollection parent, RemoteClient remoteClient, CollectionMeta metaData) {
+  RemoteCollection(String dbPath, RemoteClient remoteClient, CollectionMeta metaData,
+      DocumentCache documentCache) {
+    this(null, rootPath(dbPath), remoteClient, metaData, null, documentCache);
+  }
+
+  private RemoteCollection(RemoteCollection parent, String relativePath,
+      CollectionHandleCache.CachedHandle cachedHandle) {
+    this(parent, relativePath, parent.remoteClient, cachedHandle.metaData(), cachedHandle,
+        parent.documentCache);
+  }
+
+  private RemoteCollection(RemoteCollection parent, String relativePath, RemoteClient remoteClient,
+      CollectionMeta metaData, CollectionHandleCache.CachedHandle cachedHandle,
+      DocumentCache documentCache) {
     this.parent = parent;
+    this.relativePath = relativePath;
     this.remoteClient = remoteClient;
     this.metaData = metaData;
+    this.cachedHandle = cachedHandle;
+    this.documentCache = documentCache;
+    resolvedParent = new AtomicReference<>();
+    chunkSizeOverride = new AtomicReference<>();
+    idAllocator = new AtomicReference<>();
     open = new AtomicBoolean(true);
     LOGGER.debug("Created remote collection {}", this);
   }
@@ -104,6 +152,115 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
     return function.accept(remoteClient);
   }
 
+  /**
+   * Returns the path of this collection starting with the database path its root collection was
+   * opened by. Root collections of different database paths therefore never share a path, even if
+   * they have the same name.
+   *
+   * @return the collection path
+   */
+  String path() {
+    return parent == null ? relativePath : "%s/%s".formatted(parent.path(), relativePath);
+  }
+
+  private static String rootPath(String dbPath) {
+    final String path = dbPath.replaceAll("/+$", "");
+    return path.startsWith("/") ? path : "/" + path;
+  }
+
+  /**
+   * Returns the server handle of this collection.
+   *
+   * @return the collection handle
+   */
+  HandleId collectionHandle() {
+    return metaData.getCollectionId();
+  }
+
+  /**
+   * Returns a collector adding the downloaded content of the given resource to the document cache.
+   *
+   * @param resourceId the id of the resource being downloaded
+   * @param lastModification the last modification time of the downloaded content
+   * @return the document cache collector
+   */
+  DocumentCache.Collector documentCollector(String resourceId, Instant lastModification) {
+    return documentCache.collector(documentKey(resourceId), lastModification.toEpochMilli());
+  }
+
+  private DocumentCache.DocumentKey documentKey(String resourceId) {
+    return new DocumentCache.DocumentKey(remoteClient.endpoint(), path(), resourceId);
+  }
+
+  /**
+   * Returns the value of the given property set on this collection, falling back to the connection
+   * property of the same name.
+   *
+   * @param name the name of the property
+   * @return the property value or {@code null} if not defined
+   */
+  String setting(String name) {
+    final String value = getProperty(name);
+    return value == null ? remoteClient.setting(name) : value;
+  }
+
+  /**
+   * Returns the long value of the given collection or connection property.
+   *
+   * @param name the name of the property
+   * @param defaultValue the value used if the property is not set
+   * @return the property value or {@code defaultValue} if not defined
+   * @throws NumberFormatException if the property value is not a valid number
+   */
+  long longSetting(String name, long defaultValue) {
+    final String value = setting(name);
+    return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.strip());
+  }
+
+  /**
+   * Returns the chunk size policy for resource transfers of this collection. A
+   * {@link Constants#CHUNK_SIZE} property set on this collection overrides the setting of the
+   * connection.
+   *
+   * @return the chunk size policy to be used
+   */
+  ChunkSizePolicy chunkSizePolicy() {
+    final ChunkSizePolicy clientPolicy = remoteClient.chunkSizePolicy();
+    final String setting = getProperty(CHUNK_SIZE);
+    if (setting == null) {
+      return clientPolicy;
+    }
+    return chunkSizeOverride.updateAndGet(
+        policy -> (policy == null ? clientPolicy : policy).withSetting(setting));
+  }
+
+  /**
+   * Returns the deadline policy for content transfers of this collection. Transfer deadline
+   * properties set on this collection override the settings of the connection.
+   *
+   * @return the deadline policy to be used
+   */
+  DeadlinePolicy deadlinePolicy() {
+    if (getProperty(DEADLINE_TRANSFER) == null
+        && getProperty(DEADLINE_TRANSFER_THROUGHPUT) == null) {
+      return remoteClient.deadlinePolicy();
+    }
+    return DeadlinePolicy.of(this::setting);
+  }
+
+  /**
+   * Returns the compression policy for content transfers of this collection. Compression
+   * properties set on this collection override the settings of the connection.
+   *
+   * @return the compression policy to be used
+   */
+  CompressionPolicy compressionPolicy() {
+    if (getProperty(COMPRESSION) == null && getProperty(COMPRESSION_THRESHOLD) == null) {
+      return remoteClient.compressionPolicy();
+    }
+    return CompressionPolicy.of(this::setting);
+  }
+
   @Override
   public String getName() throws XMLDBException {
     LOGGER.debug("getName()");
@@ -119,7 +276,22 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   @Override
   public Collection getParentCollection() throws XMLDBException {
     LOGGER.debug("getParentCollection()");
-    return parent;
+    final int separator = relativePath.lastIndexOf('/');
+    if (parent == null || separator < 0) {
+      return parent;
+    }
+    // opened by a multi segment path, resolve the direct parent on demand
+    final RemoteCollection resolved = resolvedParent.get();
+    if (resolved != null) {
+      return resolved;
+    }
+    final RemoteCollection opened =
+        (RemoteCollection) parent.getChildCollection(relativePath.substring(0, separator));
+    if (opened != null && !resolvedParent.compareAndSet(null, opened)) {
+      opened.close();
+      return resolvedParent.get();
+    }
+    return opened;
   }
 
   @Override
@@ -131,22 +303,57 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   @Override
   public List<String> listChildCollections() throws XMLDBException {
     LOGGER.debug("listChildCollections()");
-    return StreamSupport
-        .stream(spliteratorUnknownSize(remoteClient.childCollections(metaData.getCollectionId()),
-            IMMUTABLE), false)
-        .map(ChildCollectionName::getChildName).toList();
+    try (Stream<String> names = streamChildCollections()) {
+      return names.toList();
+    }
+  }
+
+  /**
+   * Returns a lazy stream of the child collection names, reading the names from the server as the
+   * stream is consumed. The stream must be closed, which cancels the call if not all names have
+   * been read.
+   *
+   * @return the stream of child collection names
+   * @throws XMLDBException if the listing could not be started
+   */
+  public Stream<String> streamChildCollections() throws XMLDBException {
+    LOGGER.debug("streamChildCollections()");
+    return stream(remoteClient.childCollections(metaData.getCollectionId()))
+        .map(ChildCollectionName::getChildName);
+  }
+
+  private static <T> Stream<T> stream(ClientCallIterator<T> iterator) {
+    return StreamSupport.stream(spliteratorUnknownSize(iterator, IMMUTABLE), false)
+        .onClose(iterator::close);
+  }
+
+  /**
+   * Publishes the names of the child collections as they are received from the server. In contrast
+   * to {@link #listChildCollections()} the names are requested from the server as demanded by the
+   * subscriber, and cancelling the subscription stops the transfer.
+   *
+   * @return a publisher of the child collection names
+   */
+  public Flow.Publisher<String> publishChildCollections() {
+    LOGGER.debug("publishChildCollections()");
+    return remoteClient.childCollectionsPublisher(metaData.getCollectionId(),
+        ChildCollectionName::getChildName);
   }
 
   @Override
   public Collection getChildCollection(String childCollectionName) throws XMLDBException {
     LOGGER.debug("getChildCollection({})", childCollectionName);
-    final CollectionMeta collectionMeta =
-        remoteClient.openChildCollection(metaData.getCollectionId(), childCollectionName);
-    if (collectionMeta.getName().isEmpty()) {
+    final List<String> segments =
+        Arrays.stream(childCollectionName.split("/")).filter(s -> !s.isEmpty()).toList();
+    final CollectionHandleCache.CachedHandle childHandle = segments.isEmpty() ? null
+        : remoteClient.collectionHandles().acquire(
+            "%s/%s".formatted(path(), String.join("/", segments)),
+            () -> remoteClient.openCollectionPath(metaData.getCollectionId(), segments));
+    if (childHandle == null) {
       LOGGER.warn("Child collection '{}' not found", childCollectionName);
       return null;
     } else {
-      return new RemoteCollection(this, remoteClient, collectionMeta);
+      return new RemoteCollection(this, String.join("/", segments), childHandle);
     }
   }
 
@@ -159,19 +366,69 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   @Override
   public List<String> listResources() throws XMLDBException {
     LOGGER.debug("listResources()");
-    return StreamSupport.stream(
-        spliteratorUnknownSize(remoteClient.listResources(metaData.getCollectionId()), IMMUTABLE),
-        false).map(ResourceId::getResourceId).toList();
+    try (Stream<String> ids = streamResources()) {
+      return ids.toList();
+    }
+  }
+
+  /**
+   * Returns a lazy stream of the resource ids, reading the ids from the server as the stream is
+   * consumed. The stream must be closed, which cancels the call if not all ids have been read.
+   *
+   * @return the stream of resource ids
+   * @throws XMLDBException if the listing could not be started
+   */
+  public Stream<String> streamResources() throws XMLDBException {
+    LOGGER.debug("streamResources()");
+    return stream(remoteClient.listResources(metaData.getCollectionId()))
+        .map(ResourceId::getResourceId);
+  }
+
+  /**
+   * Publishes the ids of the resources as they are received from the server. In contrast to
+   * {@link #listResources()} the ids are requested from the server as demanded by the subscriber,
+   * and cancelling the subscription stops the transfer.
+   *
+   * @return a publisher of the resource ids
+   */
+  public Flow.Publisher<String> publishResources() {
+    LOGGER.debug("publishResources()");
+    return remoteClient.listResourcesPublisher(metaData.getCollectionId(),
+        ResourceId::getResourceId);
   }
 
   @Override
   public <R extends Resource> R createResource(String id, Class<R> type) throws XMLDBException {
     LOGGER.debug("createResource({}, {})", id, type);
-    final String resourceId = createId(id);
+    final ResourceType resourceType = resourceTypeOf(type);
+    return type.cast(pendingResource(createId(id), resourceType));
+  }
+
+  /**
+   * Creates a new empty resource of the given type, which gets created on the server once it is
+   * stored.
+   *
+   * @param id the id of the resource
+   * @param resourceType the type of the resource
+   * @return the new resource
+   * @throws XMLDBException if the resource type is not supported
+   */
+  RemoteBaseResource pendingResource(String id, ResourceType resourceType) throws XMLDBException {
+    final long now = System.currentTimeMillis();
+    final String contentType = contentTypeOf(resourceType);
+    final RemoteBaseResource resource = newResource(id, ResourceMeta.newBuilder()
+        .setType(resourceType).setContentType(contentType).setCreationTime(now)
+        .setLastModificationTime(now).build());
+    resource.deferCreation(remoteClient.createResourceMeta(metaData.getCollectionId(), id,
+        convert(resourceType), contentType));
+    return resource;
+  }
+
+  static ResourceType resourceTypeOf(Class<? extends Resource> type) throws XMLDBException {
     if (BinaryResource.class.equals(type)) {
-      return type.cast(new RemoteBinaryResource(resourceId, createMeta(BINARY, resourceId), this));
+      return BINARY;
     } else if (XMLResource.class.equals(type)) {
-      return type.cast(new RemoteXMLResource(resourceId, createMeta(XML, resourceId), this));
+      return XML;
     }
     throw new XMLDBException(INVALID_RESOURCE);
   }
@@ -184,20 +441,15 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
     }
   }
 
-  private String contentTypeOf(final ResourceType resourceType) {
+  static String contentTypeOf(final ResourceType resourceType) {
     return switch (resourceType) {
       case BINARY, UNRECOGNIZED -> "application/octet-stream";
       case XML -> "text/xml";
     };
   }
 
-  private ResourceMeta createMeta(final ResourceType resourceType, final String resourceId)
+  static org.xmldb.api.base.ResourceType convert(ResourceType resourceType)
       throws XMLDBException {
-    return remoteClient.createResource(metaData.getCollectionId(), resourceId,
-        convert(resourceType), contentTypeOf(resourceType));
-  }
-
-  private org.xmldb.api.base.ResourceType convert(ResourceType resourceType) throws XMLDBException {
     return switch (resourceType) {
       case XML -> XML_RESOURCE;
       case BINARY -> BINARY_RESOURCE;
@@ -208,7 +460,59 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   @Override
   public Resource getResource(String id) throws XMLDBException {
     LOGGER.debug("getResource({})", id);
-    final ResourceMeta resourceMeta = remoteClient.openResource(metaData.getCollectionId(), id);
+    return openedResource(id, remoteClient.openResource(metaData.getCollectionId(), id));
+  }
+
+  /**
+   * Opens the resources with the given ids using a single call to the server, avoiding a round
+   * trip per resource.
+   *
+   * @param ids the ids of the resources
+   * @return the resources in the order of the given ids, with {@code null} for a resource that does
+   *         not exist
+   * @throws XMLDBException if the resources could not be opened
+   * @see #getResource(String)
+   */
+  public List<Resource> getResources(java.util.Collection<String> ids) throws XMLDBException {
+    LOGGER.debug("getResources({})", ids);
+    final List<String> resourceIds = List.copyOf(ids);
+    final List<ResourceMeta> resourceMetas =
+        remoteClient.openResources(metaData.getCollectionId(), resourceIds);
+    final List<Resource> resources = new ArrayList<>(resourceIds.size());
+    for (int i = 0; i < resourceIds.size(); i++) {
+      final ResourceMeta resourceMeta = resourceMetas.get(i);
+      resources.add(resourceMeta == null ? null : openedResource(resourceIds.get(i), resourceMeta));
+    }
+    return resources;
+  }
+
+  /**
+   * Creates the resource for the given metadata, using the document cache for its content if
+   * possible.
+   *
+   * @param id the id of the resource
+   * @param resourceMeta the metadata returned when opening the resource
+   * @return the opened resource
+   * @throws XMLDBException if the resource type is not supported
+   */
+  RemoteBaseResource openedResource(String id, ResourceMeta resourceMeta) throws XMLDBException {
+    final RemoteBaseResource resource = newResource(id, resourceMeta);
+    if (documentCache.isEnabled()) {
+      documentCache.lookup(documentKey(id), resourceMeta.getLastModificationTime())
+          .ifPresent(resource::useCachedContent);
+    }
+    return resource;
+  }
+
+  /**
+   * Creates the resource for the given metadata.
+   *
+   * @param id the id of the resource
+   * @param resourceMeta the metadata of the resource
+   * @return the new resource
+   * @throws XMLDBException if the resource type is not supported
+   */
+  RemoteBaseResource newResource(String id, ResourceMeta resourceMeta) throws XMLDBException {
     return switch (resourceMeta.getType()) {
       case XML -> new RemoteXMLResource(id, resourceMeta, this);
       case BINARY -> new RemoteBinaryResource(id, resourceMeta, this);
@@ -216,11 +520,23 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
     };
   }
 
+  /**
+   * Invalidates the cached content of the given resource.
+   *
+   * @param id the id of the resource
+   */
+  void invalidateDocument(String id) {
+    documentCache.invalidate(documentKey(id));
+  }
+
   @Override
   public void removeResource(Resource res) throws XMLDBException {
     LOGGER.debug("removeResource() with {}", res);
     if (res instanceof RemoteBaseResource baseResource) {
-      remoteClient.removeResource(baseResource.getResourceMeta().getResourceId());
+      if (baseResource.pendingCreation() == null) {
+        invalidateDocument(baseResource.getId());
+        remoteClient.removeResource(baseResource.getResourceMeta().getResourceId());
+      }
     } else {
       throw new XMLDBException(INVALID_RESOURCE);
     }
@@ -230,16 +546,114 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   public void storeResource(Resource res) throws XMLDBException {
     LOGGER.debug("storeResource() with {}", res);
     if (res instanceof RemoteBaseResource baseResource) {
-      remoteClient.storeResource(metaData.getCollectionId(), baseResource);
+      invalidateDocument(baseResource.getId());
+      remoteClient.storeResource(metaData.getCollectionId(), baseResource, chunkSizePolicy(),
+          deadlinePolicy(), compressionPolicy(),
+          longSetting(STORE_INLINE_THRESHOLD, DEFAULT_STORE_INLINE_THRESHOLD));
     } else {
       throw new XMLDBException(INVALID_RESOURCE);
     }
   }
 
+  /**
+   * Stores the given resources concurrently over the connection of this collection. Up to
+   * {@link Constants#STORE_PARALLELISM} transfers are in flight at the same time, each on its own
+   * virtual thread, so that the throughput is not limited by the round trip time of a single
+   * transfer. The resources are taken from the given iterable as transfers complete.
+   * <p>
+   * A failed transfer does not stop the remaining ones, its failure is reported by the result of
+   * the resource instead.
+   *
+   * @param resources the resources to be stored
+   * @return the store results in the order of the given resources
+   * @throws XMLDBException if the calling thread was interrupted while storing
+   */
+  public List<StoreResult> storeResources(Iterable<? extends Resource> resources)
+      throws XMLDBException {
+    LOGGER.debug("storeResources()");
+    final Semaphore permits = new Semaphore(
+        Math.toIntExact(Math.max(1, longSetting(STORE_PARALLELISM, DEFAULT_STORE_PARALLELISM))));
+    final List<Future<StoreResult>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (Resource resource : resources) {
+        permits.acquire();
+        results.add(executor.submit(() -> {
+          try {
+            storeResource(resource);
+            return new StoreResult(resource, null);
+          } catch (XMLDBException e) {
+            return new StoreResult(resource, e);
+          } catch (RuntimeException e) {
+            return new StoreResult(resource, new XMLDBException(VENDOR_ERROR, e));
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
+    return results.stream().map(Future::resultNow).toList();
+  }
+
+  /**
+   * Creates a new unique resource id. Unless {@link Constants#ID_BLOCK_SIZE} is {@code 0}, ids are
+   * taken from a block of ids fetched from the server in advance.
+   */
   @Override
   public String createId() throws XMLDBException {
     LOGGER.debug("createId()");
-    return remoteClient.createId(metaData.getCollectionId());
+    final IdAllocator allocator = idAllocator();
+    final String id = allocator == null ? null : allocator.next();
+    return id == null ? remoteClient.createId(metaData.getCollectionId()) : id;
+  }
+
+  /**
+   * Creates a new unique resource id without blocking, taking it from the same blocks of ids as
+   * {@link #createId()}.
+   *
+   * @return the future of the new id
+   */
+  CompletableFuture<String> createIdAsync() {
+    final IdAllocator allocator;
+    try {
+      allocator = idAllocator();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(new XMLDBException(VENDOR_ERROR, e));
+    }
+    if (allocator == null) {
+      return remoteClient.createIdAsync(metaData.getCollectionId());
+    }
+    return allocator.nextAsync().thenCompose(id -> id == null
+        ? remoteClient.createIdAsync(metaData.getCollectionId())
+        : CompletableFuture.completedFuture(id));
+  }
+
+  private IdAllocator idAllocator() {
+    final IdAllocator allocator = idAllocator.get();
+    if (allocator != null) {
+      return allocator;
+    }
+    final int blockSize =
+        Math.toIntExact(Math.max(0, longSetting(ID_BLOCK_SIZE, DEFAULT_ID_BLOCK_SIZE)));
+    if (blockSize == 0) {
+      return null;
+    }
+    final HandleId collectionHandle = metaData.getCollectionId();
+    idAllocator.compareAndSet(null,
+        new IdAllocator(count -> remoteClient.createIdsAsync(collectionHandle, count), blockSize));
+    return idAllocator.get();
+  }
+
+  /**
+   * Returns the asynchronous view of this collection, performing its operations without blocking
+   * the calling thread.
+   *
+   * @return the asynchronous view of this collection
+   */
+  public AsyncRemoteCollection async() {
+    return new AsyncRemoteCollection(this, remoteClient, metaData.getCollectionId());
   }
 
   @Override
@@ -251,7 +665,28 @@ public class RemoteCollection extends RemoteConfigurable implements Collection {
   public void close() throws XMLDBException {
     if (open.compareAndSet(true, false)) {
       LOGGER.debug("close()");
-      remoteClient.closeCollection(metaData.getCollectionId());
+      try {
+        if (cachedHandle == null) {
+          remoteClient.closeCollection(metaData.getCollectionId());
+        } else {
+          remoteClient.collectionHandles().release(cachedHandle);
+        }
+      } finally {
+        closeResolvedParent();
+      }
+    }
+  }
+
+  private void closeResolvedParent() throws XMLDBException {
+    try {
+      final RemoteCollection resolved = resolvedParent.getAndSet(null);
+      if (resolved != null) {
+        resolved.close();
+      }
+    } finally {
+      if (parent == null) {
+        remoteClient.close();
+      }
     }
   }
 
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import org.xmldb.api.base.CompiledExpression;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.NamespaceContext;
+
+/**
+ * A query compiled on the server, evaluated by sending its handle instead of the query text. The
+ * query text and the namespace bindings it was compiled with are kept to evaluate it with the
+ * same bindings and to compile it again, if the server no longer knows the handle.
+ *
+ * @param query the query text
+ * @param namespaces the namespace bindings at the time the query was compiled
+ * @param compiledHandle the handle of the compiled query, or {@code null} if the query is sent as
+ *        text
+ */
+record RemoteCompiledExpression(String query, NamespaceContext namespaces,
+    HandleId compiledHandle) implements CompiledExpression {
+
+  /**
+   * Does nothing, as the evaluation state of a compiled query is kept on the server for each
+   * evaluation only.
+   */
+  @Override
+  public void reset() {
+    // no client side state to reset
+  }
+}
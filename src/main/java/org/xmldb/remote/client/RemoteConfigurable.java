@@ -52,4 +52,17 @@ public class RemoteConfigurable implements Configurable {
       properties.put(name, value);
     }
   }
+
+  /**
+   * Returns the long value of the given property.
+   *
+   * @param name the name of the property
+   * @param defaultValue the value used if the property is not set
+   * @return the property value or {@code defaultValue} if not defined
+   * @throws NumberFormatException if the property value is not a valid number
+   */
+  final long getLongProperty(String name, long defaultValue) {
+    final String value = properties.get(name);
+    return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.strip());
+  }
 }
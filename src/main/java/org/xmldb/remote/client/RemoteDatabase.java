@@ -11,6 +11,10 @@
 package org.xmldb.remote.client;
 
 import static org.xmldb.api.DatabaseManager.URI_PREFIX;
+import static org.xmldb.remote.client.Constants.CLIENT_CACHE_SIZE;
+import static org.xmldb.remote.client.Constants.DEFAULT_CLIENT_CACHE_SIZE;
+import static org.xmldb.remote.client.Constants.DOCUMENT_CACHE_OFF_HEAP;
+import static org.xmldb.remote.client.Constants.DOCUMENT_CACHE_SIZE;
 
 import java.net.URI;
 import java.util.Properties;
@@ -28,15 +32,25 @@ import org.xmldb.api.grpc.CollectionMeta;
  * extends the {@link RemoteConfigurable} class, enabling configurable settings to interact with a
  * remote database system. This class serves as a client gateway to manage database collections over
  * a remote connection, such as a gRPC-enabled database service.
+ * <p>
+ * Remote clients are reused for root collections opened for the same endpoint, principal and
+ * connection properties. The number of cached clients is limited by the
+ * {@link Constants#CLIENT_CACHE_SIZE} property. Resource content can be cached across all
+ * collections by defining a memory budget using the {@link Constants#DOCUMENT_CACHE_SIZE} property.
  */
 public final class RemoteDatabase extends RemoteConfigurable implements Database {
   private static final Logger LOGGER = LoggerFactory.getLogger(RemoteDatabase.class);
 
+  private final RemoteClientCache clientCache;
+  private final DocumentCache documentCache;
+
   /**
    * Initializes a new instance of the {@code RemoteDatabase} class.
    */
   public RemoteDatabase() {
     super();
+    clientCache = new RemoteClientCache(DEFAULT_CLIENT_CACHE_SIZE);
+    documentCache = new DocumentCache();
     LOGGER.debug("RemoteDatabase()");
   }
 
@@ -58,12 +72,24 @@ public final class RemoteDatabase extends RemoteConfigurable implements Database
     try {
       final var connectionInfo = parseConnectionInfo(uri, info, ConnectionInfo::create);
       if (connectionInfo != null) {
-        final RemoteClient remoteClient = RemoteClient.create(connectionInfo);
-        final CollectionMeta metaData = remoteClient.openRootCollection(uri, connectionInfo.info());
+        clientCache.resize(
+            Math.toIntExact(getLongProperty(CLIENT_CACHE_SIZE, DEFAULT_CLIENT_CACHE_SIZE)));
+        documentCache.configure(getLongProperty(DOCUMENT_CACHE_SIZE, 0),
+            Boolean.parseBoolean(getProperty(DOCUMENT_CACHE_OFF_HEAP)));
+        final RemoteClient remoteClient = clientCache.acquire(connectionInfo);
+        final CollectionMeta metaData;
+        try {
+          metaData = remoteClient.openRootCollection(uri, connectionInfo.info());
+        } catch (XMLDBException | RuntimeException e) {
+          remoteClient.close();
+          throw e;
+        }
         if (metaData.getName().isEmpty()) {
           LOGGER.warn("Collection for URI '{}' not found", uri);
+          remoteClient.close();
         } else {
-          return new RemoteCollection(null, remoteClient, metaData);
+          return new RemoteCollection(connectionInfo.dbPath(), remoteClient, metaData,
+              documentCache);
         }
       }
     } catch (RuntimeException e) {
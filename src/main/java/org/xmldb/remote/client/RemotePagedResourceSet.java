@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.xmldb.api.base.ErrorCodes.NOT_IMPLEMENTED;
+import static org.xmldb.api.base.ErrorCodes.NO_SUCH_RESOURCE;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.ResourceIterator;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.QueryResult;
+
+/**
+ * The result of a query kept by a cursor on the server, fetching its items in pages as they are
+ * accessed. When a page is accessed the following one is fetched in advance. Only the last few
+ * accessed pages are kept, so neither the client nor the transfer has to hold the whole result.
+ * The size is requested from the server without fetching the items.
+ * <p>
+ * The set can not be modified. Closing it releases the cursor on the server, a set must therefore
+ * be closed once it is no longer used, otherwise the cursor is kept until the server expires it.
+ * <p>
+ * A resource set is not thread safe.
+ */
+public final class RemotePagedResourceSet implements ResourceSet, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemotePagedResourceSet.class);
+  private static final int MAX_PAGES = 3;
+
+  private final RemoteCollection collection;
+  private final int pageSize;
+  private final LinkedHashMap<Long, Page> pages;
+
+  private HandleId cursorHandle;
+  private long size;
+  private boolean closed;
+
+  RemotePagedResourceSet(RemoteCollection collection, HandleId cursorHandle, int pageSize) {
+    this.collection = collection;
+    this.cursorHandle = cursorHandle;
+    this.pageSize = pageSize;
+    this.pages = new LinkedHashMap<>(MAX_PAGES + 1, 0.75f, true);
+    this.size = -1;
+  }
+
+  @Override
+  public Resource getResource(long index) throws XMLDBException {
+    if (index >= 0) {
+      final List<Resource> page = page(index / pageSize);
+      final int offset = (int) (index % pageSize);
+      if (offset < page.size()) {
+        return page.get(offset);
+      }
+    }
+    throw new XMLDBException(NO_SUCH_RESOURCE, "No resource at index " + index);
+  }
+
+  @Override
+  public void addResource(Resource res) throws XMLDBException {
+    throw new XMLDBException(NOT_IMPLEMENTED, "A paged query result can not be modified");
+  }
+
+  @Override
+  public void addAll(ResourceSet rSet) throws XMLDBException {
+    throw new XMLDBException(NOT_IMPLEMENTED, "A paged query result can not be modified");
+  }
+
+  @Override
+  public void removeResource(long index) throws XMLDBException {
+    throw new XMLDBException(NOT_IMPLEMENTED, "A paged query result can not be modified");
+  }
+
+  @Override
+  public ResourceIterator getIterator() throws XMLDBException {
+    return new ResourceIterator() {
+      private long index;
+
+      @Override
+      public boolean hasMoreResources() throws XMLDBException {
+        return index % pageSize < page(index / pageSize).size();
+      }
+
+      @Override
+      public Resource nextResource() throws XMLDBException {
+        return getResource(index++);
+      }
+    };
+  }
+
+  @Override
+  public Resource getMembersAsResource() throws XMLDBException {
+    throw new XMLDBException(NOT_IMPLEMENTED);
+  }
+
+  /**
+   * Returns the number of items of the result. Unless the last page has been fetched already, the
+   * number is requested from the server without fetching the items.
+   */
+  @Override
+  public long getSize() throws XMLDBException {
+    if (cursorHandle == null) {
+      return 0;
+    }
+    if (size < 0) {
+      final HandleId cursor = cursorHandle;
+      size = collection.execute(client -> client.queryCursorSize(cursor)).getCount();
+    }
+    return size;
+  }
+
+  /**
+   * Releases the cursor on the server and the fetched items.
+   */
+  @Override
+  public void clear() throws XMLDBException {
+    pages.clear();
+    final HandleId cursor = cursorHandle;
+    if (cursor != null) {
+      cursorHandle = null;
+      collection.call(client -> client.closeQueryCursor(cursor));
+    }
+  }
+
+  /**
+   * Releases the cursor on the server and the fetched items.
+   *
+   * @throws XMLDBException if the cursor could not be released
+   */
+  @Override
+  public void close() throws XMLDBException {
+    if (!closed) {
+      closed = true;
+      clear();
+    }
+  }
+
+  /**
+   * Returns whether this set has been closed.
+   *
+   * @return {@code true} if closed, {@code false} otherwise
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private List<Resource> page(long pageIndex) throws XMLDBException {
+    final long offset = pageIndex * pageSize;
+    if (cursorHandle == null || (size >= 0 && offset >= size)) {
+      return List.of();
+    }
+    Page page = pages.get(pageIndex);
+    if (page == null) {
+      page = fetch(pageIndex);
+    }
+    final List<Resource> resources = page.resources();
+    if (resources.size() < pageSize) {
+      size = offset + resources.size();
+    } else if (size < 0 || offset + pageSize < size) {
+      prefetch(pageIndex + 1);
+    }
+    return resources;
+  }
+
+  private void prefetch(long pageIndex) throws XMLDBException {
+    if (!pages.containsKey(pageIndex)) {
+      fetch(pageIndex);
+    }
+  }
+
+  private Page fetch(long pageIndex) throws XMLDBException {
+    final HandleId cursor = cursorHandle;
+    final Page page = new Page(collection.execute(
+        client -> client.fetchQueryPageAsync(cursor, pageIndex * pageSize, pageSize)));
+    pages.put(pageIndex, page);
+    for (Iterator<Long> iterator = pages.keySet().iterator(); pages.size() > MAX_PAGES;) {
+      LOGGER.trace("Dropping page {}", iterator.next());
+      iterator.remove();
+    }
+    return page;
+  }
+
+  private List<Resource> resources(List<QueryResult> results) throws XMLDBException {
+    final List<Resource> resources = new ArrayList<>(pageSize);
+    final Iterator<QueryResult> iterator = results.iterator();
+    Resource resource = RemoteResourceSet.nextItem(collection, iterator);
+    while (resource != null) {
+      resources.add(resource);
+      resource = RemoteResourceSet.nextItem(collection, iterator);
+    }
+    return resources;
+  }
+
+  private final class Page {
+    private final CompletableFuture<List<QueryResult>> results;
+    private List<Resource> resources;
+
+    Page(CompletableFuture<List<QueryResult>> results) {
+      this.results = results;
+    }
+
+    List<Resource> resources() throws XMLDBException {
+      if (resources == null) {
+        resources = RemotePagedResourceSet.this.resources(RemoteClient.await(results));
+      }
+      return resources;
+    }
+  }
+}
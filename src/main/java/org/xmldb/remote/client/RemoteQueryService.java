@@ -10,8 +10,25 @@
  */
 package org.xmldb.remote.client;
 
+import static org.xmldb.remote.client.Constants.DEFAULT_QUERY_PAGE_SIZE;
+import static org.xmldb.remote.client.Constants.QUERY_PAGE_SIZE;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.CompiledExpression;
 import org.xmldb.api.base.ErrorCodes;
+import org.xmldb.api.base.ResourceSet;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CompileRequest;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.Namespace;
+import org.xmldb.api.grpc.NamespaceContext;
+import org.xmldb.api.grpc.QueryLanguage;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryVariable;
 
 /**
  * This class extends {@link RemoteBaseService} to provide common remote service functionalities
@@ -21,11 +38,170 @@ import org.xmldb.api.base.XMLDBException;
  * RemoteQueryService offers the capability to manage namespaces, including defining, retrieving,
  * and removing namespace prefixes and URIs. These functionalities are useful for remote query
  * execution that relies on namespaces for XML data and query processing.
+ * <p>
+ * The namespace map is kept by the service. Each changed version of the map is registered once on
+ * the server, queries then refer to the registered bindings by their handle instead of sending
+ * them along.
  */
 public class RemoteQueryService extends RemoteBaseService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteQueryService.class);
+
+  private final QueryLanguage language;
+  private final TreeMap<String, String> namespaces;
+
+  private NamespaceContext namespaceContext;
 
-  RemoteQueryService(ServiceInfo info, RemoteCollection collection) {
+  RemoteQueryService(ServiceInfo info, QueryLanguage language, RemoteCollection collection) {
     super(info, collection);
+    this.language = language;
+    this.namespaces = new TreeMap<>();
+  }
+
+  /**
+   * Evaluates the given query on the server, returning a result set that reads the result items as
+   * they are accessed. The query is compiled once and evaluated by its handle afterwards. If a
+   * {@link Constants#QUERY_PAGE_SIZE} is set, the result is kept by a cursor on the server and
+   * fetched in pages.
+   *
+   * @param query the query to evaluate
+   * @param resourceId the id of the resource to restrict the query to, or {@code null} to query the
+   *        whole collection
+   * @return the lazily read query result
+   * @throws XMLDBException if the query could not be started
+   */
+  ResourceSet evaluate(String query, String resourceId) throws XMLDBException {
+    return evaluate(query, namespaceContext(), resourceId, null);
+  }
+
+  /**
+   * Evaluates a query compiled by {@link #compile(String)} on the server, using the namespace
+   * bindings the query was compiled with.
+   *
+   * @param expression the compiled query
+   * @return the lazily read query result
+   * @throws XMLDBException if the expression was not compiled by this service or the query could
+   *         not be started
+   */
+  ResourceSet evaluate(CompiledExpression expression) throws XMLDBException {
+    if (!(expression instanceof RemoteCompiledExpression compiled)) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR,
+          "Expression not compiled by a remote query service");
+    }
+    return evaluate(compiled.query(), compiled.namespaces(), null, compiled.compiledHandle());
+  }
+
+  private ResourceSet evaluate(String query, NamespaceContext namespaces, String resourceId,
+      HandleId compiledHandle) throws XMLDBException {
+    final RemoteCollection queryCollection = collection();
+    return queryCollection.execute(client -> {
+      final QueryRequest request = request(client, queryCollection, query, namespaces, resourceId);
+      HandleId handle = compiledHandle;
+      try {
+        if (handle == null) {
+          handle = client.compile(compileRequest(request));
+        }
+        return evaluate(client, queryCollection, request, handle);
+      } catch (XMLDBException e) {
+        final boolean compiledUnknown =
+            handle != null && RemoteClient.isUnknownHandle(e, RemoteClient.COMPILED_HANDLE);
+        final boolean contextUnknown = request.hasNamespaceContextId()
+            && RemoteClient.isUnknownHandle(e, RemoteClient.NAMESPACE_CONTEXT_HANDLE);
+        if (!compiledUnknown && !contextUnknown) {
+          throw e;
+        }
+        LOGGER.debug("Compiled query or namespace context no longer known, registering again");
+        if (compiledUnknown) {
+          client.invalidateCompiled(compileRequest(request), handle);
+        }
+        if (contextUnknown) {
+          client.invalidateNamespaceContext(namespaces, request.getNamespaceContextId());
+        }
+      }
+      final QueryRequest renewed = request(client, queryCollection, query, namespaces, resourceId);
+      return evaluate(client, queryCollection, renewed, client.compile(compileRequest(renewed)));
+    });
+  }
+
+  private static ResourceSet evaluate(RemoteClient client, RemoteCollection queryCollection,
+      QueryRequest request, HandleId compiledHandle) throws XMLDBException {
+    final QueryRequest sent = compiledHandle == null ? request
+        : request.toBuilder().clearQuery().setCompiledId(compiledHandle).build();
+    final int pageSize = Math.toIntExact(
+        Math.max(0, queryCollection.longSetting(QUERY_PAGE_SIZE, DEFAULT_QUERY_PAGE_SIZE)));
+    if (pageSize > 0) {
+      final HandleId cursorHandle = client.openQueryCursor(sent);
+      if (cursorHandle != null) {
+        return new RemotePagedResourceSet(queryCollection, cursorHandle, pageSize);
+      }
+    }
+    return new RemoteResourceSet(queryCollection, client.startQuery(sent));
+  }
+
+  /**
+   * Compiles the given query on the server, reusing the handle of a query compiled before with the
+   * same namespace bindings.
+   *
+   * @param query the query to compile
+   * @return the compiled query
+   * @throws XMLDBException if the query could not be compiled
+   */
+  CompiledExpression compile(String query) throws XMLDBException {
+    final RemoteCollection queryCollection = collection();
+    final NamespaceContext namespaces = namespaceContext();
+    return new RemoteCompiledExpression(query, namespaces, queryCollection.execute(client -> client
+        .compile(compileRequest(request(client, queryCollection, query, namespaces, null)))));
+  }
+
+  /**
+   * Returns the variables bound when evaluating a query.
+   *
+   * @return the variable bindings
+   */
+  List<QueryVariable> variables() {
+    return List.of();
+  }
+
+  private QueryRequest request(RemoteClient client, RemoteCollection queryCollection, String query,
+      NamespaceContext namespaces, String resourceId) throws XMLDBException {
+    final QueryRequest.Builder request =
+        QueryRequest.newBuilder().setCollectionId(queryCollection.collectionHandle())
+            .setQuery(query).setLanguage(language).addAllVariables(variables());
+    if (namespaces.getNamespacesCount() > 0) {
+      final HandleId contextHandle = client.namespaceContext(namespaces);
+      if (contextHandle == null) {
+        request.addAllNamespaces(namespaces.getNamespacesList());
+      } else {
+        request.setNamespaceContextId(contextHandle);
+      }
+    }
+    if (resourceId != null) {
+      request.setResourceId(resourceId);
+    }
+    return request.build();
+  }
+
+  private static CompileRequest compileRequest(QueryRequest request) {
+    final CompileRequest.Builder compileRequest = CompileRequest.newBuilder()
+        .setQuery(request.getQuery()).setLanguage(request.getLanguage())
+        .addAllNamespaces(request.getNamespacesList());
+    if (request.hasNamespaceContextId()) {
+      compileRequest.setNamespaceContextId(request.getNamespaceContextId());
+    }
+    return compileRequest.build();
+  }
+
+  private NamespaceContext namespaceContext() {
+    if (namespaceContext == null) {
+      final NamespaceContext.Builder context = NamespaceContext.newBuilder();
+      namespaces.forEach((prefix, uri) -> context
+          .addNamespaces(Namespace.newBuilder().setPrefix(prefix).setUri(uri)));
+      namespaceContext = context.build();
+    }
+    return namespaceContext;
+  }
+
+  private static String prefix(String prefix) {
+    return prefix == null ? "" : prefix;
   }
 
   /**
@@ -39,7 +215,12 @@ public class RemoteQueryService extends RemoteBaseService {
    * @throws XMLDBException if an error occurs whilst setting the namespace.
    */
   public void setNamespace(String prefix, String uri) throws XMLDBException {
-    throw new XMLDBException(ErrorCodes.NOT_IMPLEMENTED, "Namespace management is not supported.");
+    if (uri == null || uri.isEmpty()) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, "Namespace URI must not be empty");
+    }
+    if (!uri.equals(namespaces.put(prefix(prefix), uri))) {
+      namespaceContext = null;
+    }
   }
 
   /**
@@ -54,7 +235,7 @@ public class RemoteQueryService extends RemoteBaseService {
    * @throws XMLDBException if an error occurs whilst getting the namespace.
    */
   public String getNamespace(String prefix) throws XMLDBException {
-    throw new XMLDBException(ErrorCodes.NOT_IMPLEMENTED, "Namespace management is not supported.");
+    return namespaces.get(prefix(prefix));
   }
 
   /**
@@ -67,7 +248,9 @@ public class RemoteQueryService extends RemoteBaseService {
    *         {@code ErrorCodes.VENDOR_ERROR} for any vendor specific errors that occur.
    */
   public void removeNamespace(String prefix) throws XMLDBException {
-    throw new XMLDBException(ErrorCodes.NOT_IMPLEMENTED, "Namespace management is not supported.");
+    if (namespaces.remove(prefix(prefix)) != null) {
+      namespaceContext = null;
+    }
   }
 
   /**
@@ -77,6 +260,9 @@ public class RemoteQueryService extends RemoteBaseService {
    *         vendor specific errors that occur.
    */
   public void clearNamespaces() throws XMLDBException {
-    throw new XMLDBException(ErrorCodes.NOT_IMPLEMENTED, "Namespace management is not supported.");
+    if (!namespaces.isEmpty()) {
+      namespaces.clear();
+      namespaceContext = null;
+    }
   }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.xmldb.api.base.ErrorCodes.NOT_IMPLEMENTED;
+import static org.xmldb.api.base.ErrorCodes.NO_SUCH_RESOURCE;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.ResourceIterator;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.ResourceMeta;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * The result of a query, reading its items from the server as they are accessed. The first item is
+ * available as soon as the server has sent it, items not accessed are never transferred. Read items
+ * are kept in the set, so that they can be accessed again.
+ * <p>
+ * An item is received completely before its resource is returned. Its content is kept as the
+ * received chunks without copying them into a single array. Closing the set cancels the query if
+ * not all items have been read. A set that is not read completely must therefore be closed,
+ * otherwise the query call stays open until its deadline.
+ * <p>
+ * A resource set is not thread safe.
+ */
+public final class RemoteResourceSet implements ResourceSet, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteResourceSet.class);
+
+  private final RemoteCollection collection;
+  private final ClientCallIterator<QueryResult> results;
+  private final List<Resource> resources;
+
+  private boolean finished;
+  private boolean closed;
+
+  RemoteResourceSet(RemoteCollection collection, ClientCallIterator<QueryResult> results) {
+    this.collection = collection;
+    this.results = results;
+    this.resources = new ArrayList<>();
+  }
+
+  @Override
+  public Resource getResource(long index) throws XMLDBException {
+    if (index < 0 || !isAvailable(index)) {
+      throw new XMLDBException(NO_SUCH_RESOURCE, "No resource at index " + index);
+    }
+    return resources.get((int) index);
+  }
+
+  @Override
+  public void addResource(Resource res) throws XMLDBException {
+    readAll();
+    resources.add(res);
+  }
+
+  @Override
+  public void addAll(ResourceSet rSet) throws XMLDBException {
+    readAll();
+    for (ResourceIterator iterator = rSet.getIterator(); iterator.hasMoreResources();) {
+      resources.add(iterator.nextResource());
+    }
+  }
+
+  @Override
+  public void removeResource(long index) throws XMLDBException {
+    getResource(index);
+    resources.remove((int) index);
+  }
+
+  @Override
+  public ResourceIterator getIterator() throws XMLDBException {
+    return new ResourceIterator() {
+      private long index;
+
+      @Override
+      public boolean hasMoreResources() throws XMLDBException {
+        return isAvailable(index);
+      }
+
+      @Override
+      public Resource nextResource() throws XMLDBException {
+        return getResource(index++);
+      }
+    };
+  }
+
+  @Override
+  public Resource getMembersAsResource() throws XMLDBException {
+    throw new XMLDBException(NOT_IMPLEMENTED);
+  }
+
+  /**
+   * Returns the number of items of the result. This reads all remaining items from the server.
+   */
+  @Override
+  public long getSize() throws XMLDBException {
+    readAll();
+    return resources.size();
+  }
+
+  @Override
+  public void clear() throws XMLDBException {
+    cancel();
+    resources.clear();
+  }
+
+  /**
+   * Cancels the query if not all items have been read and releases the read items.
+   *
+   * @throws XMLDBException if the set could not be closed
+   */
+  @Override
+  public void close() throws XMLDBException {
+    if (!closed) {
+      closed = true;
+      clear();
+    }
+  }
+
+  /**
+   * Returns whether this set has been closed.
+   *
+   * @return {@code true} if closed, {@code false} otherwise
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private boolean isAvailable(long index) throws XMLDBException {
+    while (index >= resources.size()) {
+      if (!readItem()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void readAll() throws XMLDBException {
+    while (readItem()) {
+      // read remaining items
+    }
+  }
+
+  private void cancel() {
+    if (!finished) {
+      LOGGER.debug("Cancelling query with {} items read", resources.size());
+      finished = true;
+      results.close();
+    }
+  }
+
+  private boolean readItem() throws XMLDBException {
+    if (finished) {
+      return false;
+    }
+    final Resource resource;
+    try {
+      resource = nextItem(collection, results);
+    } catch (IllegalStateException e) {
+      finished = true;
+      throw RemoteClient.handleIteratorFailure(e);
+    } catch (XMLDBException e) {
+      cancel();
+      throw e;
+    }
+    if (resource == null) {
+      cancel();
+      return false;
+    }
+    resources.add(resource);
+    return true;
+  }
+
+  /**
+   * Reads the chunks of the next query result item from the given results and creates its
+   * resource. This is shared by the streamed and the paged result sets.
+   *
+   * @param collection the collection the query was evaluated on
+   * @param results the received query results, positioned at the first chunk of an item
+   * @return the result resource, or {@code null} if there are no more items
+   * @throws XMLDBException if the results end before the last chunk of the item, or the resource
+   *         could not be created
+   */
+  static Resource nextItem(RemoteCollection collection, Iterator<QueryResult> results)
+      throws XMLDBException {
+    QueryResult first = null;
+    ByteString content = ByteString.EMPTY;
+    while (results.hasNext()) {
+      final QueryResult result = results.next();
+      if (first == null) {
+        first = result;
+      } else if (result.getItemIndex() != first.getItemIndex()) {
+        break;
+      }
+      content = content.concat(result.getDataChunk());
+      if (result.getLastChunk()) {
+        return resource(collection, first, content);
+      }
+    }
+    if (first != null) {
+      throw new XMLDBException(VENDOR_ERROR,
+          "Incomplete query result item " + first.getItemIndex());
+    }
+    return null;
+  }
+
+  private static Resource resource(RemoteCollection collection, QueryResult item,
+      ByteString content) throws XMLDBException {
+    final ResourceMeta resourceMeta = ResourceMeta.newBuilder().setType(item.getType())
+        .setContentType(RemoteCollection.contentTypeOf(item.getType())).setSize(content.size())
+        .build();
+    final RemoteBaseResource resource =
+        collection.newResource(item.hasDocumentId() ? item.getDocumentId() : null, resourceMeta);
+    resource.useCachedContent(content);
+    return resource;
+  }
+}
@@ -12,15 +12,31 @@ package org.xmldb.remote.client;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.xmldb.api.base.ErrorCodes.NOT_IMPLEMENTED;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
 
 import org.w3c.dom.Node;
 import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
 import org.xmldb.api.base.XMLDBException;
 import org.xmldb.api.grpc.ResourceMeta;
 import org.xmldb.api.modules.XMLResource;
@@ -31,6 +47,20 @@ import org.xmldb.api.modules.XMLResource;
  * class and implements the {@code XMLResource} interface.
  */
 public class RemoteXMLResource extends RemoteBaseResource implements XMLResource {
+  private static final String NAMESPACES_FEATURE = "http://xml.org/sax/features/namespaces";
+  private static final String EXTERNAL_GENERAL_ENTITIES_FEATURE =
+      "http://xml.org/sax/features/external-general-entities";
+  private static final String EXTERNAL_PARAMETER_ENTITIES_FEATURE =
+      "http://xml.org/sax/features/external-parameter-entities";
+  private static final String LOAD_EXTERNAL_DTD_FEATURE =
+      "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+  private static final String LEXICAL_HANDLER_PROPERTY =
+      "http://xml.org/sax/properties/lexical-handler";
+  private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+
+  private Map<String, Boolean> saxFeatures;
+  private XMLReader xmlReader;
+
   /**
    * Initializes a new instance of the {@code RemoteXMLResource} class.
    *
@@ -74,9 +104,64 @@ public class RemoteXMLResource extends RemoteBaseResource implements XMLResource
     throw new XMLDBException(NOT_IMPLEMENTED);
   }
 
+  /**
+   * Parses the content into events passed to the given handler, without materializing it as a
+   * string or document first. Stored content is parsed from the received chunks as they arrive. A
+   * query result item has been received completely with its result set and is parsed from its
+   * chunks without joining them. If the handler is also a {@link LexicalHandler} it receives the
+   * lexical events as well.
+   */
   @Override
   public void getContentAsSAX(ContentHandler handler) throws XMLDBException {
-    throw new XMLDBException(NOT_IMPLEMENTED);
+    try (InputStream input = openContentStream()) {
+      final XMLReader reader = xmlReader();
+      reader.setContentHandler(handler);
+      if (handler instanceof LexicalHandler lexicalHandler) {
+        try {
+          reader.setProperty(LEXICAL_HANDLER_PROPERTY, lexicalHandler);
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+          // the reader reports no lexical events
+        }
+      }
+      reader.parse(new InputSource(input));
+    } catch (IOException | SAXException | ParserConfigurationException e) {
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
+  }
+
+  /**
+   * Returns a reader pulling the content as StAX events, without materializing it as a string or
+   * document first. Stored content is parsed from the received chunks as they are pulled. A query
+   * result item has been received completely with its result set and is parsed from its chunks
+   * without joining them.
+   * <p>
+   * The reader must be closed, which also releases the content, cancelling its download if not
+   * read completely.
+   *
+   * @return a reader of the content
+   * @throws XMLDBException if the content could not be opened
+   */
+  public XMLStreamReader getContentAsStAX() throws XMLDBException {
+    final InputStream input = openContentStream();
+    try {
+      return new StreamReaderDelegate(INPUT_FACTORY.createXMLStreamReader(input)) {
+        @Override
+        public void close() throws XMLStreamException {
+          try (input) {
+            super.close();
+          } catch (IOException e) {
+            throw new XMLStreamException(e);
+          }
+        }
+      };
+    } catch (XMLStreamException e) {
+      try {
+        input.close();
+      } catch (IOException closeFailure) {
+        e.addSuppressed(closeFailure);
+      }
+      throw new XMLDBException(VENDOR_ERROR, e);
+    }
   }
 
   @Override
@@ -84,20 +169,61 @@ public class RemoteXMLResource extends RemoteBaseResource implements XMLResource
     throw new XMLDBException(NOT_IMPLEMENTED);
   }
 
+  /**
+   * Sets a feature of the reader used by {@link #getContentAsSAX(ContentHandler)}. Features are
+   * applied when parsing, so a feature not supported by the reader fails there.
+   */
   @Override
   public void setSAXFeature(String feature, boolean value)
       throws SAXNotRecognizedException, SAXNotSupportedException {
-    throw new SAXNotSupportedException();
+    if (saxFeatures == null) {
+      saxFeatures = new LinkedHashMap<>();
+    }
+    saxFeatures.put(feature, value);
   }
 
   @Override
   public boolean getSAXFeature(String feature)
       throws SAXNotRecognizedException, SAXNotSupportedException {
-    return false;
+    if (saxFeatures != null && saxFeatures.containsKey(feature)) {
+      return saxFeatures.get(feature);
+    }
+    return NAMESPACES_FEATURE.equals(feature);
   }
 
+  /**
+   * Sets the reader used by {@link #getContentAsSAX(ContentHandler)}, replacing the namespace aware
+   * reader created for each parse by default. Like the StAX reader, the default reader resolves no
+   * external entities and loads no external DTD.
+   */
   @Override
   public void setXMLReader(XMLReader xmlReader) {
-    // no action
+    this.xmlReader = xmlReader;
+  }
+
+  private XMLReader xmlReader() throws SAXException, ParserConfigurationException {
+    XMLReader reader = xmlReader;
+    if (reader == null) {
+      final SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature(EXTERNAL_GENERAL_ENTITIES_FEATURE, false);
+      factory.setFeature(EXTERNAL_PARAMETER_ENTITIES_FEATURE, false);
+      factory.setFeature(LOAD_EXTERNAL_DTD_FEATURE, false);
+      reader = factory.newSAXParser().getXMLReader();
+    }
+    if (saxFeatures != null) {
+      for (Map.Entry<String, Boolean> feature : saxFeatures.entrySet()) {
+        reader.setFeature(feature.getKey(), feature.getValue());
+      }
+    }
+    return reader;
+  }
+
+  private static XMLInputFactory inputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
   }
 }
@@ -10,8 +10,11 @@
  */
 package org.xmldb.remote.client;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xmldb.api.base.ResourceSet;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.QueryLanguage;
 import org.xmldb.api.modules.XPathQueryService;
 
 /**
@@ -21,17 +24,21 @@ import org.xmldb.api.modules.XPathQueryService;
  * namespaces, query execution, variable declaration, and handling of module paths.
  */
 public class RemoteXPathQueryService extends RemoteQueryService implements XPathQueryService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteXPathQueryService.class);
+
   RemoteXPathQueryService(RemoteCollection collection) {
-    super(new ServiceInfo("XPathQueryService", "1.0"), collection);
+    super(new ServiceInfo("XPathQueryService", "1.0"), QueryLanguage.XPATH, collection);
   }
 
   @Override
   public ResourceSet query(String query) throws XMLDBException {
-    return null;
+    LOGGER.debug("query({})", query);
+    return evaluate(query, null);
   }
 
   @Override
   public ResourceSet queryResource(String id, String query) throws XMLDBException {
-    return null;
+    LOGGER.debug("queryResource({}, {})", id, query);
+    return evaluate(query, id);
   }
 }
@@ -10,45 +10,108 @@
  */
 package org.xmldb.remote.client;
 
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xmldb.api.base.CompiledExpression;
 import org.xmldb.api.base.ResourceSet;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.Empty;
+import org.xmldb.api.grpc.QueryLanguage;
+import org.xmldb.api.grpc.QueryVariable;
 import org.xmldb.api.modules.XQueryService;
 
+import com.google.protobuf.ByteString;
+
 /**
  * Implements the {@link XQueryService} interface to provide remote execution of XQuery functions
  * and operations. This class extends {@link RemoteBaseService} and serves as a concrete
  * implementation of a remote service for XQuery functionalities, including the management of
  * namespaces, query execution, variable declaration, and handling of module paths.
+ * <p>
+ * Queries are compiled on the server once and evaluated by their handle afterwards, sending only
+ * the handle and the declared variables.
  */
 public class RemoteXQueryService extends RemoteQueryService implements XQueryService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteXQueryService.class);
+
+  private final Map<String, QueryVariable> variables;
 
   RemoteXQueryService(RemoteCollection collection) {
-    super(new ServiceInfo("XQueryService", "1.0"), collection);
+    super(new ServiceInfo("XQueryService", "1.0"), QueryLanguage.XQUERY, collection);
+    this.variables = new LinkedHashMap<>();
   }
 
   @Override
   public ResourceSet query(String query) throws XMLDBException {
-    return null;
+    LOGGER.debug("query({})", query);
+    return evaluate(query, null);
   }
 
   @Override
   public ResourceSet queryResource(String id, String query) throws XMLDBException {
-    return null;
+    LOGGER.debug("queryResource({}, {})", id, query);
+    return evaluate(query, id);
   }
 
   @Override
   public CompiledExpression compile(String query) throws XMLDBException {
-    return null;
+    LOGGER.debug("compile({})", query);
+    return super.compile(query);
   }
 
   @Override
   public ResourceSet execute(CompiledExpression expression) throws XMLDBException {
-    return null;
+    LOGGER.debug("execute({})", expression);
+    return evaluate(expression);
+  }
+
+  /**
+   * Declares a variable bound for all further evaluated queries. Supported values are strings,
+   * booleans, integral and floating point numbers, {@link BigInteger}, {@link BigDecimal} and byte
+   * arrays. A {@code null} value binds the empty sequence.
+   *
+   * @param qname the name of the variable
+   * @param initialValue the value of the variable
+   * @throws XMLDBException if the type of the value is not supported
+   */
+  @Override
+  public void declareVariable(String qname, Object initialValue) throws XMLDBException {
+    variables.put(qname, variable(qname, initialValue));
   }
 
   @Override
-  public void declareVariable(String qname, Object initialValue) throws XMLDBException {}
+  List<QueryVariable> variables() {
+    return List.copyOf(variables.values());
+  }
+
+  static QueryVariable variable(String qname, Object value) throws XMLDBException {
+    final QueryVariable.Builder variable = QueryVariable.newBuilder().setName(qname);
+    switch (value) {
+      case null -> variable.setEmpty(Empty.getDefaultInstance());
+      case CharSequence text -> variable.setStringValue(text.toString());
+      case Boolean bool -> variable.setBooleanValue(bool);
+      case Byte number -> variable.setIntegerValue(number);
+      case Short number -> variable.setIntegerValue(number);
+      case Integer number -> variable.setIntegerValue(number);
+      case Long number -> variable.setIntegerValue(number);
+      case Float number -> variable.setDoubleValue(number);
+      case Double number -> variable.setDoubleValue(number);
+      case BigInteger number -> variable.setDecimalValue(number.toString());
+      case BigDecimal number -> variable.setDecimalValue(number.toPlainString());
+      case byte[] bytes -> variable.setBinaryValue(ByteString.copyFrom(bytes));
+      default -> throw new XMLDBException(VENDOR_ERROR,
+          "Unsupported type %s of variable %s".formatted(value.getClass().getName(), qname));
+    }
+    return variable.build();
+  }
 
   @Override
   public void setXPathCompatibility(boolean backwardsCompatible) {}
@@ -10,7 +10,9 @@
  */
 package org.xmldb.remote.client;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Objects;
 
 import org.xmldb.api.grpc.ResourceStoreRequest;
 
@@ -22,31 +24,145 @@ import io.grpc.stub.StreamObserver;
  * A specialized OutputStream implementation for streaming resource data through a gRPC observer.
  * This class is designed to work with {@link ResourceStoreRequest} builders and a
  * {@link StreamObserver} to handle resource data transfer.
+ * <p>
+ * Written data is collected in a reusable buffer of the configured chunk size and sent as one
+ * message once the buffer is full, independent of how the caller slices its writes. Writes of at
+ * least a full chunk bypass the buffer. Any remaining buffered data is sent by {@link #flush()} or
+ * {@link #close()}.
+ * <p>
+ * A creation request set on the builder is only sent with the first message. If no data has been
+ * written, {@link #close()} sends it with an empty chunk.
+ * <p>
+ * Before sending a message the stream waits on its {@link ReadyGate}, which allows the outbound
+ * flow control of the transport to park the writing thread.
  */
 class ResourceTransferOutputStream extends OutputStream {
+  /**
+   * Gate blocking the sender until the transport is ready to accept another message.
+   */
+  @FunctionalInterface
+  interface ReadyGate {
+    /**
+     * Waits until the next message can be sent.
+     *
+     * @throws IOException if the transfer can not be continued
+     */
+    void awaitReady() throws IOException;
+  }
+
   private final ResourceStoreRequest.Builder builder;
   private final StreamObserver<ResourceStoreRequest> observer;
-  private final byte[] single_byte_buffer = new byte[1];
+  private final ReadyGate readyGate;
+  private final byte[] chunkBuffer;
+
+  private int position;
+  private long bytesWritten;
+  private boolean closed;
 
   ResourceTransferOutputStream(ResourceStoreRequest.Builder builder,
-      StreamObserver<ResourceStoreRequest> observer) {
+      StreamObserver<ResourceStoreRequest> observer, int chunkSize) {
+    this(builder, observer, chunkSize, () -> {
+    });
+  }
+
+  ResourceTransferOutputStream(ResourceStoreRequest.Builder builder,
+      StreamObserver<ResourceStoreRequest> observer, int chunkSize, ReadyGate readyGate) {
     this.builder = builder;
     this.observer = observer;
+    this.readyGate = readyGate;
+    this.chunkBuffer = new byte[chunkSize];
+  }
+
+  /**
+   * Returns the total number of bytes written to this stream.
+   *
+   * @return the number of bytes written
+   */
+  long getBytesWritten() {
+    return bytesWritten;
   }
 
   @Override
-  public void write(int b) {
-    single_byte_buffer[0] = (byte) b;
-    write(single_byte_buffer, 0, 1);
+  public void write(int b) throws IOException {
+    ensureOpen();
+    chunkBuffer[position++] = (byte) b;
+    bytesWritten++;
+    if (position == chunkBuffer.length) {
+      sendBuffer();
+    }
   }
 
   @Override
-  public void write(byte[] buffer, int off, int len) {
-    observer.onNext(builder.setDataChunk(ByteString.copyFrom(buffer, off, len)).build());
+  public void write(byte[] buffer, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, buffer.length);
+    ensureOpen();
+    bytesWritten += len;
+    final int chunkSize = chunkBuffer.length;
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (position == 0 && remaining >= chunkSize) {
+        // copy full chunks into their message directly instead of through the buffer
+        send(ByteString.copyFrom(buffer, offset, chunkSize));
+        offset += chunkSize;
+        remaining -= chunkSize;
+      } else {
+        final int size = Math.min(chunkSize - position, remaining);
+        System.arraycopy(buffer, offset, chunkBuffer, position, size);
+        position += size;
+        offset += size;
+        remaining -= size;
+        if (position == chunkSize) {
+          sendBuffer();
+        }
+      }
+    }
   }
 
+  /**
+   * Sends any buffered data as a message, even if the buffer has not been filled completely.
+   */
   @Override
-  public void close() {
-    // no action
+  public void flush() throws IOException {
+    ensureOpen();
+    if (position > 0) {
+      sendBuffer();
+    }
+  }
+
+  /**
+   * Sends any remaining buffered data and closes this stream. The underlying observer is not
+   * completed by this method.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      if (builder.hasCreate()) {
+        sendBuffer();
+      } else {
+        flush();
+      }
+      closed = true;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private void sendBuffer() throws IOException {
+    // the message gets its own copy, the buffer is reused for the next chunk
+    final ByteString chunk =
+        position == 0 ? ByteString.EMPTY : ByteString.copyFrom(chunkBuffer, 0, position);
+    position = 0;
+    send(chunk);
+  }
+
+  private void send(ByteString chunk) throws IOException {
+    readyGate.awaitReady();
+    observer.onNext(builder.setDataChunk(chunk).build());
+    builder.clearCreate();
   }
 }
@@ -10,32 +10,118 @@
  */
 package org.xmldb.remote.client;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xmldb.api.grpc.ResourceStoreRequest;
 import org.xmldb.api.grpc.ResourceTransferStatus;
 
-import io.grpc.stub.StreamObserver;
+import io.grpc.Deadline;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 
 /**
  * Implementation of the StreamObserver interface for handling status updates during a resource
  * transfer. This observer listens for status events, logs the received information, and tracks the
  * completion of the operation using a CountDownLatch.
+ * <p>
+ * The observer also tracks the outbound flow control of the request stream, allowing producers to
+ * wait using {@link #awaitReady()} until the transport is able to accept more data.
  */
-public class ResourceTransferStatusObserver implements StreamObserver<ResourceTransferStatus> {
+public class ResourceTransferStatusObserver
+    implements ClientResponseObserver<ResourceStoreRequest, ResourceTransferStatus> {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(ResourceTransferStatusObserver.class);
   private final CountDownLatch completionLatch;
+  private final ReentrantLock readyLock;
+  private final Condition readyCondition;
+
+  private volatile ClientCallStreamObserver<ResourceStoreRequest> requestStream;
+  private volatile Throwable cause;
+  private volatile ResourceTransferStatus status;
 
   /**
    * Default constructor for the ResourceTransferStatusObserver class. Initializes the observer with
    * a CountDownLatch to track the completion of resource transfer operations.
    */
   public ResourceTransferStatusObserver() {
-    this.completionLatch = new CountDownLatch(1);;
+    this.completionLatch = new CountDownLatch(1);
+    this.readyLock = new ReentrantLock();
+    this.readyCondition = readyLock.newCondition();
+  }
+
+  @Override
+  public void beforeStart(ClientCallStreamObserver<ResourceStoreRequest> requestStream) {
+    this.requestStream = requestStream;
+    requestStream.setOnReadyHandler(this::signalReady);
+  }
+
+  /**
+   * Blocks the calling thread until the request stream is ready to accept more messages without
+   * excessive buffering. This keeps the memory used by an upload bounded to a few in-flight chunks.
+   *
+   * @throws InterruptedIOException if the current thread is interrupted while waiting
+   * @throws IOException if the transfer has terminated before the stream got ready
+   */
+  public void awaitReady() throws IOException {
+    awaitReady(Duration.ZERO);
+  }
+
+  /**
+   * Blocks the calling thread until the request stream is ready to accept more messages, at most
+   * for the given timeout. This bounds the time an upload of unknown size can stall, which is not
+   * limited by a deadline of its call.
+   *
+   * @param timeout the maximum time to wait, or {@link Duration#ZERO} to wait without limit
+   * @throws InterruptedIOException if the current thread is interrupted while waiting
+   * @throws IOException if the transfer has terminated or the timeout elapsed before the stream
+   *         got ready
+   */
+  public void awaitReady(Duration timeout) throws IOException {
+    final ClientCallStreamObserver<ResourceStoreRequest> stream = requestStream;
+    if (stream == null) {
+      return;
+    }
+    readyLock.lock();
+    try {
+      long remaining = timeout.toNanos();
+      while (!stream.isReady()) {
+        if (completionLatch.getCount() == 0) {
+          throw new IOException("Resource transfer already terminated", cause);
+        }
+        if (timeout.isZero()) {
+          readyCondition.await();
+        } else if (remaining <= 0) {
+          throw new IOException("Server did not accept more content within %d ms"
+              .formatted(timeout.toMillis()));
+        } else {
+          remaining = readyCondition.awaitNanos(remaining);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for the transfer to get ready");
+    } finally {
+      readyLock.unlock();
+    }
+  }
+
+  private void signalReady() {
+    readyLock.lock();
+    try {
+      readyCondition.signalAll();
+    } finally {
+      readyLock.unlock();
+    }
   }
 
   /**
@@ -46,25 +132,80 @@ public class ResourceTransferStatusObserver implements StreamObserver<ResourceTr
    * @return {@code true} if the latch was counted down within the timeout, {@code false} if the
    *         timeout elapsed before the latch was counted down.
    * @throws InterruptedException if the current thread is interrupted while waiting.
+   * @deprecated use {@link #awaitCompletion(Deadline)} to wait as long as the call is allowed to
+   *             take
    */
+  @Deprecated
   public boolean awaitCompletion() throws InterruptedException {
-    return completionLatch.await(30, SECONDS);
+    return awaitCompletion(Deadline.after(30, SECONDS));
+  }
+
+  /**
+   * Waits for the completion signal until the given deadline. This method uses a
+   * {@code CountDownLatch} to block the current thread until the latch is counted down, or the
+   * deadline expires.
+   *
+   * @param deadline the deadline to wait for, or {@code null} to wait without limit
+   * @return {@code true} if the latch was counted down before the deadline, {@code false} if the
+   *         deadline expired before the latch was counted down.
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public boolean awaitCompletion(Deadline deadline) throws InterruptedException {
+    if (deadline == null) {
+      completionLatch.await();
+      return true;
+    }
+    return completionLatch.await(deadline.timeRemaining(NANOSECONDS), NANOSECONDS);
+  }
+
+  /**
+   * Cancels the transfer if it has not terminated yet.
+   *
+   * @param message the reason of the cancellation
+   */
+  public void cancel(String message) {
+    final ClientCallStreamObserver<ResourceStoreRequest> stream = requestStream;
+    if (stream != null && completionLatch.getCount() > 0) {
+      stream.cancel(message, null);
+    }
+  }
+
+  /**
+   * Returns the error the transfer terminated with.
+   *
+   * @return the error or {@code null} if the transfer did not fail
+   */
+  public Throwable getCause() {
+    return cause;
+  }
+
+  /**
+   * Returns the transfer status received from the server.
+   *
+   * @return the received status or {@code null} if none has been received yet
+   */
+  public ResourceTransferStatus getStatus() {
+    return status;
   }
 
   @Override
   public void onNext(ResourceTransferStatus resourceStoreRequest) {
     LOGGER.debug("onNext({})", resourceStoreRequest.getStatus());
+    status = resourceStoreRequest;
   }
 
   @Override
   public void onError(Throwable throwable) {
     LOGGER.debug("onError({})", throwable, throwable);
+    cause = throwable;
     completionLatch.countDown();
+    signalReady();
   }
 
   @Override
   public void onCompleted() {
     LOGGER.debug("onCompleted()");
     completionLatch.countDown();
+    signalReady();
   }
 }
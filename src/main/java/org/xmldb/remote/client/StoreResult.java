@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.XMLDBException;
+
+/**
+ * The outcome of storing a single resource as part of
+ * {@link RemoteCollection#storeResources(Iterable)}.
+ *
+ * @param resource the resource to be stored
+ * @param failure the reason the resource could not be stored, or {@code null} if it was stored
+ */
+public record StoreResult(Resource resource, XMLDBException failure) {
+
+  /**
+   * Returns whether the resource has been stored.
+   *
+   * @return {@code true} if the resource was stored, {@code false} otherwise
+   */
+  public boolean isSuccess() {
+    return failure == null;
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.list;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+import static org.xmldb.remote.client.Constants.ID_BLOCK_SIZE;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.Count;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.IdBlockRequest;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.ResourceIdBlock;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.BinaryResource;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+class AsyncRemoteCollectionTest {
+  static final int BLOCK_SIZE = 8;
+  static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  CollectionService service;
+  InProcessClient inProcess;
+  RemoteCollection collection;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new CollectionService();
+    inProcess = InProcessClient.start(service);
+    collection = inProcess.collection();
+    collection.setProperty(ID_BLOCK_SIZE, String.valueOf(BLOCK_SIZE));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void counts() {
+    service.count = 3;
+
+    assertThat(collection.async().getResourceCount()).succeedsWithin(TIMEOUT).isEqualTo(3);
+    assertThat(collection.async().getChildCollectionCount()).succeedsWithin(TIMEOUT)
+        .isEqualTo(3);
+  }
+
+  @Test
+  void countBeyondIntRangeFails() {
+    service.count = Integer.MAX_VALUE + 1L;
+
+    assertFailsWithVendorError(collection.async().getResourceCount());
+    assertFailsWithVendorError(collection.async().getChildCollectionCount());
+  }
+
+  @Test
+  void listResources() {
+    assertThat(collection.async().listResources()).succeedsWithin(TIMEOUT, list(String.class))
+        .containsExactly("first", "second");
+  }
+
+  @Test
+  void serverFailureCompletesWithXmldbException() {
+    service.failing = true;
+
+    assertThat(collection.async().getResourceCount()).failsWithin(TIMEOUT)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(XMLDBException.class);
+  }
+
+  @Test
+  void idsAreTakenFromBlocks() {
+    final List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      futures.add(collection.async().createId());
+    }
+
+    final Set<String> ids = new HashSet<>();
+    for (CompletableFuture<String> future : futures) {
+      assertThat(future).succeedsWithin(TIMEOUT);
+      ids.add(future.join());
+    }
+    assertThat(ids).hasSize(20).doesNotContainNull();
+    assertThat(service.blocks).hasValueBetween(3, 4);
+    assertThat(service.singleIds).hasValue(0);
+  }
+
+  @Test
+  void blockingAndAsyncIdsShareBlocks() throws XMLDBException {
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      ids.add(collection.createId());
+      ids.add(collection.async().createId().join());
+    }
+
+    assertThat(ids).hasSize(4);
+    assertThat(service.blocks).hasValue(1);
+  }
+
+  @Test
+  void createResourceTakesIdFromBlock() {
+    final CompletableFuture<BinaryResource> resource =
+        collection.async().createResource(null, BinaryResource.class);
+
+    assertThat(resource).succeedsWithin(TIMEOUT).isInstanceOf(RemoteBinaryResource.class);
+    assertThat(((RemoteBaseResource) resource.join()).getId()).isEqualTo("id-0");
+    assertThat(service.blocks).hasValue(1);
+    assertThat(service.singleIds).hasValue(0);
+  }
+
+  @Test
+  void singleIdsWithoutBlockSupport() {
+    service.blocksSupported = false;
+
+    assertThat(collection.async().createId()).succeedsWithin(TIMEOUT);
+    assertThat(collection.async().createId()).succeedsWithin(TIMEOUT);
+    assertThat(service.singleIds).hasValue(2);
+  }
+
+  @Test
+  void singleIdsWithoutBlockSize() {
+    collection.setProperty(ID_BLOCK_SIZE, "0");
+
+    assertThat(collection.async().createId()).succeedsWithin(TIMEOUT);
+    assertThat(service.blocks).hasValue(0);
+    assertThat(service.singleIds).hasValue(1);
+  }
+
+  static void assertFailsWithVendorError(CompletableFuture<?> future) {
+    assertThat(future).failsWithin(TIMEOUT).withThrowableOfType(ExecutionException.class)
+        .havingCause().isInstanceOfSatisfying(XMLDBException.class,
+            e -> assertThat(e.errorCode).isEqualTo(VENDOR_ERROR));
+  }
+
+  static final class CollectionService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final AtomicInteger sequence = new AtomicInteger();
+    final AtomicInteger blocks = new AtomicInteger();
+    final AtomicInteger singleIds = new AtomicInteger();
+    volatile boolean blocksSupported = true;
+    volatile boolean failing;
+    volatile long count;
+
+    @Override
+    public void resourceCount(HandleId request, StreamObserver<Count> responseObserver) {
+      respond(Count.newBuilder().setCount(count).build(), responseObserver);
+    }
+
+    @Override
+    public void collectionCount(HandleId request, StreamObserver<Count> responseObserver) {
+      respond(Count.newBuilder().setCount(count).build(), responseObserver);
+    }
+
+    @Override
+    public void listResources(HandleId request, StreamObserver<ResourceId> responseObserver) {
+      responseObserver.onNext(ResourceId.newBuilder().setResourceId("first").build());
+      responseObserver.onNext(ResourceId.newBuilder().setResourceId("second").build());
+      responseObserver.onCompleted();
+    }
+
+    <T> void respond(T value, StreamObserver<T> responseObserver) {
+      if (failing) {
+        responseObserver.onError(Status.INTERNAL.asRuntimeException());
+      } else {
+        responseObserver.onNext(value);
+        responseObserver.onCompleted();
+      }
+    }
+
+    @Override
+    public void createId(HandleId request, StreamObserver<ResourceId> responseObserver) {
+      singleIds.incrementAndGet();
+      responseObserver.onNext(ResourceId.newBuilder().setCollectionId(request)
+          .setResourceId("id-" + sequence.getAndIncrement()).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void createIds(IdBlockRequest request,
+        StreamObserver<ResourceIdBlock> responseObserver) {
+      if (!blocksSupported) {
+        super.createIds(request, responseObserver);
+        return;
+      }
+      blocks.incrementAndGet();
+      final ResourceIdBlock.Builder block = ResourceIdBlock.newBuilder();
+      for (int i = 0; i < request.getCount(); i++) {
+        block.addResourceIds("id-" + sequence.getAndIncrement());
+      }
+      responseObserver.onNext(block.build());
+      responseObserver.onCompleted();
+    }
+  }
+}
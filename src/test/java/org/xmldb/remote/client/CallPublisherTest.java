@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xmldb.remote.client.InProcessClient.ROOT_COLLECTION;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+class CallPublisherTest {
+  static final int ITEMS = 10;
+  static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  ListingService service;
+  InProcessClient inProcess;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new ListingService();
+    inProcess = InProcessClient.start(service);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void deliversOnlyDemandedItems() throws InterruptedException {
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+
+    subscriber.subscription.request(2);
+    subscriber.awaitItems(2);
+    Thread.sleep(100);
+    assertThat(subscriber.items).containsExactly("r0", "r1");
+    assertThat(subscriber.completion).isNotDone();
+
+    subscriber.subscription.request(3);
+    subscriber.awaitItems(5);
+    assertThat(subscriber.completion).isNotDone();
+  }
+
+  @Test
+  void unboundedDemand() {
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.completion).succeedsWithin(TIMEOUT);
+    assertThat(subscriber.items).hasSize(ITEMS).startsWith("r0").endsWith("r9");
+  }
+
+  @Test
+  void concurrentRequests() throws InterruptedException {
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i <= ITEMS; i++) {
+        executor.execute(() -> {
+          try {
+            start.await();
+            subscriber.subscription.request(1);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      }
+      start.countDown();
+
+      assertThat(subscriber.completion).succeedsWithin(TIMEOUT);
+      assertThat(subscriber.items).hasSize(ITEMS).doesNotHaveDuplicates();
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void cancelStopsCall() throws InterruptedException {
+    service.endless = true;
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+
+    subscriber.subscription.request(1);
+    subscriber.awaitItems(1);
+    subscriber.subscription.cancel();
+
+    assertThat(service.cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(100);
+    assertThat(subscriber.items).containsExactly("r0");
+    assertThat(subscriber.completion).isNotDone();
+  }
+
+  @Test
+  void mapperFailureCancelsCall() throws InterruptedException {
+    service.endless = true;
+    final IllegalStateException failure = new IllegalStateException("mapping failed");
+    final TestSubscriber<String> subscriber = subscribe(resourceId -> {
+      if (resourceId.getResourceId().equals("r1")) {
+        throw failure;
+      }
+      return resourceId.getResourceId();
+    });
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.completion).failsWithin(TIMEOUT)
+        .withThrowableOfType(ExecutionException.class).withCause(failure);
+    assertThat(service.cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(subscriber.items).containsExactly("r0");
+  }
+
+  @Test
+  void callFailure() {
+    service.failure = Status.NOT_FOUND;
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.completion).failsWithin(TIMEOUT)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(XMLDBException.class);
+  }
+
+  @Test
+  void nonPositiveDemand() throws InterruptedException {
+    service.endless = true;
+    final TestSubscriber<String> subscriber = subscribe(ResourceId::getResourceId);
+
+    subscriber.subscription.request(0);
+
+    assertThat(subscriber.completion).failsWithin(TIMEOUT)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(service.cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  <R> TestSubscriber<R> subscribe(Function<ResourceId, R> mapper) {
+    final TestSubscriber<R> subscriber = new TestSubscriber<>();
+    inProcess.client().listResourcesPublisher(ROOT_COLLECTION, mapper).subscribe(subscriber);
+    return subscriber;
+  }
+
+  static final class TestSubscriber<T> implements Flow.Subscriber<T> {
+    final List<T> items = new CopyOnWriteArrayList<>();
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    volatile Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.complete(null);
+    }
+
+    void awaitItems(int count) throws InterruptedException {
+      final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+      while (items.size() < count && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(items).hasSizeGreaterThanOrEqualTo(count);
+    }
+  }
+
+  static final class ListingService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    volatile boolean endless;
+    volatile Status failure;
+
+    @Override
+    public void listResources(HandleId request, StreamObserver<ResourceId> responseObserver) {
+      ((ServerCallStreamObserver<ResourceId>) responseObserver)
+          .setOnCancelHandler(cancelled::countDown);
+      if (failure != null) {
+        responseObserver.onError(failure.asRuntimeException());
+        return;
+      }
+      for (int i = 0; i < ITEMS; i++) {
+        responseObserver.onNext(ResourceId.newBuilder().setCollectionId(request)
+            .setResourceId("r" + i).build());
+      }
+      if (!endless) {
+        responseObserver.onCompleted();
+      }
+    }
+  }
+}
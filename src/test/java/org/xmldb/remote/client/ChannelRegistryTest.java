@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xmldb.remote.client.Constants.CHANNEL_IDLE_TIMEOUT;
+import static org.xmldb.remote.client.Constants.MAX_INBOUND_MESSAGE_SIZE;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.grpc.InsecureChannelCredentials;
+
+class ChannelRegistryTest {
+  ChannelRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new ChannelRegistry(InsecureChannelCredentials::create);
+  }
+
+  @Test
+  void acquireSameEndpoint() {
+    var first = registry.acquire(connectionInfo("guest", "0"));
+    var second = registry.acquire(connectionInfo("guest", "0"));
+
+    assertThat(second).isSameAs(first);
+    registry.release(first);
+    assertThat(first.channel().isShutdown()).isFalse();
+    registry.release(second);
+    assertThat(first.channel().isShutdown()).isTrue();
+  }
+
+  @Test
+  void acquireDifferentCredentials() {
+    var guest = registry.acquire(connectionInfo("guest", "0"));
+    var admin = registry.acquire(connectionInfo("admin", "0"));
+
+    assertThat(admin).isNotSameAs(guest);
+    registry.release(guest);
+    registry.release(admin);
+  }
+
+  @Test
+  void acquireDifferentMessageSize() {
+    var small = registry.acquire(connectionInfo("guest", "0"));
+    var largeInfo = connectionInfo("guest", "0");
+    largeInfo.info().setProperty(MAX_INBOUND_MESSAGE_SIZE, "16777216");
+    var large = registry.acquire(largeInfo);
+
+    assertThat(large).isNotSameAs(small);
+    registry.release(small);
+    registry.release(large);
+  }
+
+  @Test
+  void releaseWithIdleTimeout() {
+    var first = registry.acquire(connectionInfo("guest", "60000"));
+    registry.release(first);
+    assertThat(first.channel().isShutdown()).isFalse();
+
+    var second = registry.acquire(connectionInfo("guest", "60000"));
+    assertThat(second).isSameAs(first);
+    registry.release(second);
+    second.channel().shutdownNow();
+  }
+
+  @Test
+  void acquireAfterShutdown() {
+    var first = registry.acquire(connectionInfo("guest", "0"));
+    registry.release(first);
+
+    var second = registry.acquire(connectionInfo("guest", "0"));
+    assertThat(second).isNotSameAs(first);
+    registry.release(second);
+  }
+
+  ConnectionInfo connectionInfo(String user, String idleTimeout) {
+    Properties properties = new Properties();
+    properties.setProperty("user", user);
+    properties.setProperty(CHANNEL_IDLE_TIMEOUT, idleTimeout);
+    return new ConnectionInfo("localhost", 9000, "/db", properties);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.xmldb.remote.client.Constants.DEFAULT_BUFFER_SIZE;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.xmldb.api.grpc.ResourceMeta;
+
+class ChunkSizePolicyTest {
+  static final int MAXIMUM = 1024 * 1024;
+
+  @ParameterizedTest
+  @CsvSource(textBlock = """
+      ,         4096
+      '  ',     4096
+      8192,     8192
+      1,        1
+      99999999, 1048576
+      """)
+  void fixedChunkSize(String setting, int expected) {
+    var policy = ChunkSizePolicy.of(setting, MAXIMUM);
+    assertThat(policy.isAdaptive()).isFalse();
+    assertThat(policy.chunkSize(ResourceMeta.newBuilder().setSize(1).build())).isEqualTo(expected);
+  }
+
+  @ParameterizedTest
+  @CsvSource({"0", "-1", "-4096", "many"})
+  void invalidChunkSize(String setting) {
+    assertThatIllegalArgumentException().isThrownBy(() -> ChunkSizePolicy.of(setting, MAXIMUM));
+  }
+
+  @Test
+  void adaptiveChunkSizeGrowsWithThroughput() {
+    var policy = ChunkSizePolicy.of("adaptive", MAXIMUM);
+    var meta = ResourceMeta.getDefaultInstance();
+    int initial = policy.chunkSize(meta);
+
+    policy.recordTransfer(initial, 100L * initial, 1_000_000);
+    int grown = policy.chunkSize(meta);
+    assertThat(grown).isEqualTo(2 * initial);
+
+    policy.recordTransfer(grown, 100L * grown, 1_000_000);
+    assertThat(policy.chunkSize(meta)).isEqualTo(4 * initial);
+
+    policy.recordTransfer(4 * initial, 100L, 1_000_000_000);
+    assertThat(policy.chunkSize(meta)).isEqualTo(4 * initial);
+  }
+
+  @Test
+  void adaptiveChunkSizeUsesResourceSize() {
+    var policy = ChunkSizePolicy.of("adaptive", MAXIMUM);
+
+    assertThat(policy.chunkSize(ResourceMeta.newBuilder().setSize(10).build()))
+        .isEqualTo(DEFAULT_BUFFER_SIZE);
+    assertThat(policy.chunkSize(ResourceMeta.newBuilder().setSize(1L << 40).build()))
+        .isEqualTo(MAXIMUM);
+  }
+
+  @Test
+  void withSetting() {
+    var policy = ChunkSizePolicy.of("adaptive", MAXIMUM);
+
+    assertThat(policy.withSetting(null)).isSameAs(policy);
+    assertThat(policy.withSetting("Adaptive")).isSameAs(policy);
+    assertThat(policy.withSetting("512").chunkSize(ResourceMeta.getDefaultInstance()))
+        .isEqualTo(512);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoSettings;
+
+import io.grpc.stub.BlockingClientCall;
+
+@MockitoSettings
+class ClientCallIteratorTest {
+  @Mock
+  BlockingClientCall<Object, String> call;
+
+  @Test
+  void readsUntilStreamCloses() throws Exception {
+    when(call.read(anyLong(), any(TimeUnit.class))).thenReturn("a", "b", null);
+
+    try (var iterator = new ClientCallIterator<>(call, Duration.ofSeconds(1))) {
+      assertThat(iterator).toIterable().containsExactly("a", "b");
+    }
+    verify(call, never()).cancel(anyString(), any());
+  }
+
+  @Test
+  void closeCancelsUnfinishedCall() throws Exception {
+    when(call.read(anyLong(), any(TimeUnit.class))).thenReturn("a");
+
+    try (var iterator = new ClientCallIterator<>(call, Duration.ofSeconds(1))) {
+      assertThat(iterator.next()).isEqualTo("a");
+    }
+    verify(call).cancel(anyString(), any());
+  }
+
+  @Test
+  void timeoutCancelsCallWithoutInterrupt() throws Exception {
+    when(call.read(anyLong(), any(TimeUnit.class))).thenThrow(new TimeoutException());
+
+    var iterator = new ClientCallIterator<>(call, Duration.ofMillis(10));
+    assertThatIllegalStateException().isThrownBy(iterator::hasNext)
+        .withCauseInstanceOf(TimeoutException.class);
+    assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    verify(call).cancel(anyString(), any());
+  }
+}
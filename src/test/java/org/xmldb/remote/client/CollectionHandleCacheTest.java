@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CollectionMeta;
+import org.xmldb.api.grpc.HandleId;
+
+class CollectionHandleCacheTest {
+  final List<HandleId> closed = new CopyOnWriteArrayList<>();
+  final AtomicInteger loads = new AtomicInteger();
+
+  CollectionMeta load() {
+    return CollectionMeta.newBuilder().setName("child").setCollectionId(
+        HandleId.newBuilder().setLeastSignificantBits(loads.incrementAndGet())).build();
+  }
+
+  @Test
+  void sharesHandleWhileReferenced() throws XMLDBException {
+    var cache = new CollectionHandleCache(Duration.ZERO, closed::add);
+
+    var first = cache.acquire("/db/child", this::load);
+    var second = cache.acquire("/db/child", this::load);
+    assertThat(second).isSameAs(first);
+    assertThat(loads).hasValue(1);
+
+    cache.release(first);
+    assertThat(closed).isEmpty();
+    cache.release(second);
+    assertThat(closed).containsExactly(first.metaData().getCollectionId());
+
+    cache.acquire("/db/child", this::load);
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void keepsIdleHandleUntilCleared() throws XMLDBException {
+    var cache = new CollectionHandleCache(Duration.ofHours(1), closed::add);
+
+    var handle = cache.acquire("/db/child", this::load);
+    cache.release(handle);
+    assertThat(cache.acquire("/db/child", this::load)).isSameAs(handle);
+    cache.release(handle);
+    assertThat(closed).isEmpty();
+
+    cache.clear();
+    assertThat(closed).containsExactly(handle.metaData().getCollectionId());
+  }
+
+  @Test
+  void closesExpiredHandleWhileIdle() throws Exception {
+    var cache = new CollectionHandleCache(Duration.ofMillis(50), closed::add);
+
+    var handle = cache.acquire("/db/child", this::load);
+    cache.release(handle);
+
+    for (int i = 0; i < 100 && closed.isEmpty(); i++) {
+      Thread.sleep(50);
+    }
+    assertThat(closed).containsExactly(handle.metaData().getCollectionId());
+    assertThat(cache.acquire("/db/child", this::load)).isNotSameAs(handle);
+  }
+
+  @Test
+  void missingCollectionIsNotCached() throws XMLDBException {
+    var cache = new CollectionHandleCache(Duration.ZERO, closed::add);
+
+    assertThat(cache.acquire("/db/missing", CollectionMeta::getDefaultInstance)).isNull();
+  }
+}
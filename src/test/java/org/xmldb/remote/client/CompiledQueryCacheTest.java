@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CompileRequest;
+import org.xmldb.api.grpc.HandleId;
+
+class CompiledQueryCacheTest {
+  final List<HandleId> released = new ArrayList<>();
+  final AtomicInteger compiles = new AtomicInteger();
+
+  HandleId compile(CompileRequest request) {
+    return HandleId.newBuilder().setLeastSignificantBits(compiles.incrementAndGet()).build();
+  }
+
+  static CompileRequest request(String query) {
+    return CompileRequest.newBuilder().setQuery(query).build();
+  }
+
+  @Test
+  void reusesCompiledQuery() throws XMLDBException {
+    var cache = new CompiledQueryCache(2, released::add);
+
+    var handle = cache.handle(request("//a"), this::compile);
+    assertThat(cache.handle(request("//a"), this::compile)).isEqualTo(handle);
+    assertThat(compiles).hasValue(1);
+  }
+
+  @Test
+  void releasesLeastRecentlyUsed() throws XMLDBException {
+    var cache = new CompiledQueryCache(2, released::add);
+
+    var first = cache.handle(request("//a"), this::compile);
+    var second = cache.handle(request("//b"), this::compile);
+    cache.handle(request("//a"), this::compile);
+    cache.handle(request("//c"), this::compile);
+    assertThat(released).containsExactly(second);
+
+    cache.clear();
+    assertThat(released).hasSize(3).contains(first);
+  }
+
+  @Test
+  void compilesInvalidatedQueryAgain() throws XMLDBException {
+    var cache = new CompiledQueryCache(2, released::add);
+
+    var handle = cache.handle(request("//a"), this::compile);
+    cache.invalidate(request("//a"), handle);
+    assertThat(cache.handle(request("//a"), this::compile)).isNotEqualTo(handle);
+    assertThat(released).isEmpty();
+  }
+
+  @Test
+  void disabledCache() throws XMLDBException {
+    var cache = new CompiledQueryCache(0, released::add);
+
+    assertThat(cache.handle(request("//a"), this::compile)).isNull();
+    assertThat(compiles).hasValue(0);
+  }
+
+  @Test
+  void unsupportedCompilation() throws XMLDBException {
+    var cache = new CompiledQueryCache(2, released::add);
+
+    assertThat(cache.handle(request("//a"), query -> null)).isNull();
+    assertThat(cache.handle(request("//a"), this::compile)).isNotNull();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+
+class CompressionPolicyTest {
+  ManagedChannel channel;
+  XmlDbServiceGrpc.XmlDbServiceStub stub;
+
+  @BeforeEach
+  void setUp() {
+    channel = InProcessChannelBuilder.forName("compression").build();
+    stub = XmlDbServiceGrpc.newStub(channel);
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.shutdownNow();
+  }
+
+  @Test
+  void noCompressionByDefault() {
+    var policy = CompressionPolicy.of(name -> null);
+
+    assertThat(policy.apply(stub, -1).getCallOptions().getCompressor()).isNull();
+    assertThat(policy.apply(stub, 1_000_000).getCallOptions().getCompressor()).isNull();
+  }
+
+  @Test
+  void smallContentIsNotCompressed() {
+    var policy =
+        CompressionPolicy.of(Map.of("compression", "gzip", "compression.threshold", "100")::get);
+
+    assertThat(policy.apply(stub, 99).getCallOptions().getCompressor()).isNull();
+    assertThat(policy.apply(stub, 100).getCallOptions().getCompressor()).isEqualTo("gzip");
+    assertThat(policy.apply(stub, -1).getCallOptions().getCompressor()).isEqualTo("gzip");
+  }
+
+  @Test
+  void unsupportedCompression() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> CompressionPolicy.of(Map.of("compression", "unknown")::get));
+  }
+
+  @Test
+  void registeredCodecs() {
+    assertThat(Codecs.isSupported("gzip")).isTrue();
+    assertThat(Codecs.isSupported("identity")).isTrue();
+    assertThat(Codecs.decompressors().getAdvertisedMessageEncodings()).contains("gzip");
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+
+class ContentBufferTest {
+  static final Instant MODIFIED = Instant.ofEpochMilli(4711);
+
+  static Set<Path> tempFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+      return files.filter(file -> file.getFileName().toString().startsWith("xmldb-content-"))
+          .collect(Collectors.toSet());
+    }
+  }
+
+  static String content(ContentBuffer buffer) throws IOException {
+    try (InputStream input = buffer.newInput()) {
+      return new String(input.readAllBytes(), UTF_8);
+    }
+  }
+
+  static ByteString chunk(String value) {
+    return ByteString.copyFrom(value, UTF_8);
+  }
+
+  @Test
+  void keepsContentBelowThresholdOnHeap() throws IOException {
+    final Set<Path> before = tempFiles();
+    try (ContentBuffer buffer = new ContentBuffer(MODIFIED, 8)) {
+      buffer.append(chunk("abcd"));
+      buffer.append(chunk("efgh"));
+
+      assertThat(tempFiles()).isEqualTo(before);
+      assertThat(content(buffer)).isEqualTo("abcdefgh");
+    }
+  }
+
+  @Test
+  void spillsContentPastThreshold() throws IOException {
+    final Set<Path> before = tempFiles();
+    final ContentBuffer buffer = new ContentBuffer(MODIFIED, 8);
+    buffer.append(chunk("abcd"));
+    buffer.append(chunk("efgh"));
+    buffer.append(chunk("ijk"));
+
+    assertThat(tempFiles()).hasSize(before.size() + 1);
+    assertThat(content(buffer)).isEqualTo("abcdefghijk");
+    assertThat(content(buffer)).isEqualTo("abcdefghijk");
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    buffer.writeTo(stream);
+    assertThat(stream.toString(UTF_8)).isEqualTo("abcdefghijk");
+    final ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+    buffer.writeTo(Channels.newChannel(channelTarget));
+    assertThat(channelTarget.toString(UTF_8)).isEqualTo("abcdefghijk");
+
+    final InputStream input = buffer.newInput();
+    buffer.close();
+
+    assertThat(tempFiles()).isEqualTo(before);
+    assertThatExceptionOfType(IOException.class).isThrownBy(input::read);
+  }
+
+  @Test
+  void readsSpilledContentByteByByte() throws IOException {
+    try (ContentBuffer buffer = new ContentBuffer(MODIFIED, 2)) {
+      buffer.append(chunk("ab"));
+      buffer.append(chunk("c"));
+      try (InputStream input = buffer.newInput()) {
+        assertThat(input.read()).isEqualTo('a');
+        assertThat(input.read()).isEqualTo('b');
+        assertThat(new String(input.readAllBytes(), UTF_8)).isEqualTo("c");
+        assertThat(input.read()).isEqualTo(-1);
+      }
+    }
+  }
+
+  @Test
+  void spillsSingleChunkLargerThanThreshold() throws IOException {
+    try (ContentBuffer buffer = new ContentBuffer(MODIFIED, 4)) {
+      buffer.append(chunk("abcdefgh"));
+
+      assertThat(content(buffer)).isEqualTo("abcdefgh");
+    }
+  }
+
+  @Test
+  void validForLoadedModification() throws IOException {
+    try (ContentBuffer buffer = new ContentBuffer(MODIFIED, chunk("abc"))) {
+      assertThat(buffer.isValidFor(MODIFIED)).isTrue();
+      assertThat(buffer.isValidFor(MODIFIED.plusMillis(1))).isFalse();
+      assertThat(content(buffer)).isEqualTo("abc");
+    }
+  }
+}
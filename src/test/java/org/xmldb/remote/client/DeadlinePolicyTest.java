@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.Test;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+
+class DeadlinePolicyTest {
+
+  @Test
+  void defaults() {
+    var policy = DeadlinePolicy.of(name -> null);
+
+    assertThat(policy.metadataDeadline().timeRemaining(SECONDS)).isBetween(9L, 10L);
+    assertThat(policy.listingDeadline()).isNull();
+    assertThat(policy.transferDeadline(-1)).isNull();
+  }
+
+  @Test
+  void transferDeadlineGrowsWithSize() {
+    var policy = DeadlinePolicy
+        .of(Map.of("deadline.transfer", "1000", "deadline.transfer.throughput", "1000")::get);
+
+    assertThat(policy.transferDeadline(0).timeRemaining(MILLISECONDS)).isBetween(900L, 1000L);
+    assertThat(policy.transferDeadline(10_000).timeRemaining(SECONDS)).isBetween(10L, 11L);
+  }
+
+  @Test
+  void callerDeadlineTakesPrecedence() throws Exception {
+    var policy = DeadlinePolicy.of(name -> null);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try (var context = Context.current().withDeadline(Deadline.after(1, SECONDS), scheduler)) {
+      context.run(() -> {
+        assertThat(policy.metadataDeadline().timeRemaining(SECONDS)).isLessThanOrEqualTo(1L);
+        assertThat(policy.listingDeadline()).isNotNull();
+      });
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+
+class DocumentCacheTest {
+  // each entry weighs 512 bytes including its overhead, the budget holds 16 of them
+  static final int CONTENT_SIZE = 384;
+  static final long BUDGET = 16 * 512;
+
+  final DocumentCache cache = new DocumentCache();
+
+  static DocumentCache.DocumentKey key(int index) {
+    return new DocumentCache.DocumentKey("localhost:1704", "/db", "r" + index);
+  }
+
+  static ByteString content(int index) {
+    final byte[] content = new byte[CONTENT_SIZE];
+    content[0] = (byte) index;
+    return ByteString.copyFrom(content);
+  }
+
+  boolean isCached(int index) {
+    return cache.lookup(key(index), index).isPresent();
+  }
+
+  void put(int index) {
+    cache.put(key(index), index, content(index));
+  }
+
+  @Test
+  void disabledByDefault() {
+    put(1);
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(isCached(1)).isFalse();
+  }
+
+  @Test
+  void hitMatchesModificationTime() {
+    cache.configure(BUDGET, false);
+    put(1);
+
+    assertThat(cache.lookup(key(1), 1)).contains(content(1));
+    assertThat(cache.lookup(key(1), 2)).isEmpty();
+    assertThat(cache.lookup(key(1), 1)).isEmpty();
+  }
+
+  @Test
+  void evictsLeastRecentlyAddedFromProbation() {
+    cache.configure(BUDGET, false);
+    for (int i = 0; i <= 16; i++) {
+      put(i);
+    }
+
+    assertThat(isCached(0)).isFalse();
+    assertThat(isCached(1)).isTrue();
+    assertThat(isCached(16)).isTrue();
+  }
+
+  @Test
+  void protectedEntrySurvivesScan() {
+    cache.configure(BUDGET, false);
+    put(0);
+    assertThat(isCached(0)).isTrue();
+
+    for (int i = 1; i <= 40; i++) {
+      put(i);
+    }
+
+    assertThat(isCached(0)).isTrue();
+    assertThat(isCached(1)).isFalse();
+    assertThat(isCached(40)).isTrue();
+  }
+
+  @Test
+  void demotesLeastRecentlyUsedProtectedEntry() {
+    cache.configure(BUDGET, false);
+    // the protected segment holds 80% of the budget, 12 entries
+    for (int i = 0; i < 13; i++) {
+      put(i);
+      assertThat(isCached(i)).isTrue();
+    }
+
+    for (int i = 100; i < 116; i++) {
+      put(i);
+    }
+
+    assertThat(isCached(0)).isFalse();
+    for (int i = 1; i < 13; i++) {
+      assertThat(isCached(i)).isTrue();
+    }
+  }
+
+  @Test
+  void rejectsContentLargerThanEntryLimit() {
+    cache.configure(BUDGET, false);
+    cache.put(key(1), 1, ByteString.copyFrom(new byte[(int) BUDGET / 8]));
+
+    assertThat(isCached(1)).isFalse();
+  }
+
+  @Test
+  void reducedBudgetEvicts() {
+    cache.configure(BUDGET, false);
+    for (int i = 0; i < 16; i++) {
+      put(i);
+    }
+
+    cache.configure(BUDGET / 2, false);
+
+    assertThat(isCached(7)).isFalse();
+    assertThat(isCached(8)).isTrue();
+    cache.configure(0, false);
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(isCached(15)).isFalse();
+  }
+
+  @Test
+  void storesContentOffHeap() {
+    cache.configure(BUDGET, true);
+    put(1);
+
+    assertThat(cache.lookup(key(1), 1)).hasValueSatisfying(cached -> {
+      assertThat(cached).isEqualTo(content(1));
+      assertThat(cached.asReadOnlyByteBuffer().isDirect()).isTrue();
+    });
+  }
+
+  @Test
+  void collectorAddsCompletedDownload() {
+    cache.configure(BUDGET, false);
+    final DocumentCache.Collector collector = cache.collector(key(1), 1);
+    collector.append(content(1).substring(0, 100));
+    collector.append(content(1).substring(100));
+
+    assertThat(isCached(1)).isFalse();
+    collector.complete();
+    assertThat(cache.lookup(key(1), 1)).contains(content(1));
+  }
+
+  @Test
+  void collectorAbandonsOversizedDownload() {
+    cache.configure(BUDGET, false);
+    final DocumentCache.Collector collector = cache.collector(key(1), 1);
+    for (int i = 0; i < 3; i++) {
+      collector.append(content(i));
+    }
+    collector.complete();
+
+    assertThat(isCached(1)).isFalse();
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+
+import io.grpc.Status;
+
+class FutureStreamObserverTest {
+
+  @Test
+  void completesWithReceivedValues() {
+    var observer = new FutureStreamObserver<String>();
+    observer.onNext("a");
+    observer.onNext("b");
+    assertThat(observer.future()).isNotDone();
+
+    observer.onCompleted();
+    assertThat(observer.future()).isCompletedWithValueMatching(values -> values.size() == 2);
+  }
+
+  @Test
+  void failsWithXmlDbException() {
+    var observer = new FutureStreamObserver<String>();
+    observer.onError(Status.UNIMPLEMENTED.asRuntimeException());
+
+    assertThat(observer.future()).isCompletedExceptionally();
+    var failure = observer.future().handle((values, cause) -> cause).join();
+    assertThat(failure).isInstanceOf(XMLDBException.class);
+    assertThat(RemoteClient.isUnimplemented((XMLDBException) failure)).isTrue();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.api.base.ErrorCodes.VENDOR_ERROR;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+
+class IdAllocatorTest {
+  final AtomicInteger sequence = new AtomicInteger();
+  final AtomicInteger loads = new AtomicInteger();
+
+  CompletableFuture<List<String>> load(int count) {
+    loads.incrementAndGet();
+    return CompletableFuture.supplyAsync(() -> IntStream.range(0, count)
+        .mapToObj(i -> "id-" + sequence.getAndIncrement()).toList());
+  }
+
+  @Test
+  void idsAreTakenFromBlocks() throws XMLDBException {
+    final IdAllocator allocator = new IdAllocator(this::load, 8);
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(allocator.next());
+    }
+    assertThat(ids).hasSize(20).doesNotContainNull();
+    assertThat(loads).hasValueBetween(3, 4);
+  }
+
+  @Test
+  void concurrentIdsAreUnique() throws Exception {
+    final IdAllocator allocator = new IdAllocator(this::load, 16);
+    final Set<String> ids = ConcurrentHashMap.newKeySet();
+    final List<Future<?>> tasks = new ArrayList<>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 1_000; i++) {
+        tasks.add(executor.submit(() -> ids.add(allocator.next())));
+      }
+    }
+    for (Future<?> task : tasks) {
+      task.get();
+    }
+    assertThat(ids).hasSize(1_000).doesNotContainNull();
+  }
+
+  @Test
+  void asyncIdsAreTakenFromBlocks() {
+    final IdAllocator allocator = new IdAllocator(this::load, 8);
+    final List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      futures.add(allocator.nextAsync());
+    }
+    assertThat(futures.stream().map(CompletableFuture::join).distinct()).hasSize(20)
+        .doesNotContainNull();
+    assertThat(loads).hasValueBetween(3, 4);
+  }
+
+  @Test
+  void unsupportedBlocks() throws XMLDBException {
+    final IdAllocator allocator =
+        new IdAllocator(count -> CompletableFuture.completedFuture(List.of()), 8);
+    assertThat(allocator.next()).isNull();
+    assertThat(allocator.nextAsync()).isCompletedWithValue(null);
+  }
+
+  @Test
+  void failedBlock() {
+    final XMLDBException failure = new XMLDBException(VENDOR_ERROR);
+    final IdAllocator allocator =
+        new IdAllocator(count -> CompletableFuture.failedFuture(failure), 8);
+    assertThatExceptionOfType(XMLDBException.class).isThrownBy(allocator::next)
+        .isSameAs(failure);
+    assertThat(allocator.nextAsync()).isCompletedExceptionally();
+  }
+}
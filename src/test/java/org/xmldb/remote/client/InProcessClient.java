@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.xmldb.api.grpc.CollectionMeta;
+import org.xmldb.api.grpc.HandleId;
+
+import io.grpc.BindableService;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+/**
+ * Test fixture connecting a {@link RemoteClient} to a fake service running on an in-process
+ * server. Closing the fixture closes the client and shuts down the channel and the server.
+ */
+final class InProcessClient implements AutoCloseable {
+  static final HandleId ROOT_COLLECTION = HandleId.newBuilder().setLeastSignificantBits(1).build();
+
+  private final Server server;
+  private final ManagedChannel channel;
+  private final RemoteClient client;
+
+  private InProcessClient(Server server, ManagedChannel channel, RemoteClient client) {
+    this.server = server;
+    this.channel = channel;
+    this.client = client;
+  }
+
+  /**
+   * Starts the given service and connects a client with default connection properties.
+   */
+  static InProcessClient start(BindableService service) throws IOException {
+    return start(service, new Properties(), builder -> {
+    });
+  }
+
+  /**
+   * Starts the given service and connects a client, delivering all calls and callbacks on the
+   * calling thread.
+   */
+  static InProcessClient startDirect(BindableService service) throws IOException {
+    final String name = InProcessServerBuilder.generateName();
+    final Server server =
+        InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+    return connect(server, InProcessChannelBuilder.forName(name).directExecutor(),
+        new Properties());
+  }
+
+  /**
+   * Starts the given service on a server set up by the given customizer and connects a client
+   * using the given connection properties, which are applied to the channel as well.
+   */
+  static InProcessClient start(BindableService service, Properties info,
+      Consumer<InProcessServerBuilder> serverSetup) throws IOException {
+    final String name = InProcessServerBuilder.generateName();
+    final InProcessServerBuilder serverBuilder =
+        InProcessServerBuilder.forName(name).addService(service);
+    serverSetup.accept(serverBuilder);
+    return connect(serverBuilder.build().start(), InProcessChannelBuilder.forName(name), info);
+  }
+
+  private static InProcessClient connect(Server server, InProcessChannelBuilder channelBuilder,
+      Properties info) {
+    final ConnectionInfo connectionInfo = new ConnectionInfo("localhost", 0, "/", info);
+    connectionInfo.configure(channelBuilder);
+    final ManagedChannel channel = channelBuilder.build();
+    return new InProcessClient(server, channel, new RemoteClient(channel,
+        new AuthenticationCredentials(connectionInfo::authentication), connectionInfo));
+  }
+
+  /**
+   * Returns the failure a server reports when called with a handle of the given kind it does not
+   * know.
+   */
+  static StatusRuntimeException unknownHandle(String kind) {
+    final Metadata trailers = new Metadata();
+    trailers.put(RemoteClient.UNKNOWN_HANDLE, kind);
+    return Status.NOT_FOUND.asRuntimeException(trailers);
+  }
+
+  RemoteClient client() {
+    return client;
+  }
+
+  /**
+   * Returns a new root collection named {@code db} with its own document cache.
+   */
+  RemoteCollection collection() {
+    return collection(new DocumentCache());
+  }
+
+  /**
+   * Returns a new root collection named {@code db} using the given document cache.
+   */
+  RemoteCollection collection(DocumentCache documentCache) {
+    return collection("/db", documentCache);
+  }
+
+  /**
+   * Returns a new root collection named {@code db} opened by the given database path, using the
+   * given document cache.
+   */
+  RemoteCollection collection(String dbPath, DocumentCache documentCache) {
+    return new RemoteCollection(dbPath, client, CollectionMeta.newBuilder().setName("db")
+        .setCollectionId(ROOT_COLLECTION).build(), documentCache);
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    client.close();
+    channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+  }
+}
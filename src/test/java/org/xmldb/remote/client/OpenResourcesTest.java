@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.ResourceIds;
+import org.xmldb.api.grpc.ResourceMeta;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.stub.StreamObserver;
+
+class OpenResourcesTest {
+  static final HandleId COLLECTION = HandleId.newBuilder().setLeastSignificantBits(1).build();
+  static final List<String> IDS = List.of("a", "missing", "c");
+
+  InProcessClient inProcess;
+  RemoteClient client;
+
+  void start(SingleOpenService service) throws IOException {
+    inProcess = InProcessClient.startDirect(service);
+    client = inProcess.client();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void openResources() throws Exception {
+    final BatchOpenService service = new BatchOpenService();
+    start(service);
+
+    assertOpened(client.openResources(COLLECTION, IDS));
+    assertThat(service.batchCalls).hasValue(1);
+    assertThat(service.singleCalls).hasValue(0);
+  }
+
+  @Test
+  void openResourcesFallback() throws Exception {
+    final SingleOpenService service = new SingleOpenService();
+    start(service);
+
+    assertOpened(client.openResources(COLLECTION, IDS));
+    assertOpened(client.openResources(COLLECTION, IDS));
+    assertThat(service.singleCalls).hasValue(6);
+  }
+
+  @Test
+  void openResourcesEmpty() throws Exception {
+    start(new SingleOpenService());
+
+    assertThat(client.openResources(COLLECTION, List.of())).isEmpty();
+  }
+
+  static void assertOpened(List<ResourceMeta> resourceMetas) {
+    assertThat(resourceMetas).hasSize(3);
+    assertThat(resourceMetas.get(0).getContentType()).isEqualTo("a");
+    assertThat(resourceMetas.get(1)).isNull();
+    assertThat(resourceMetas.get(2).getContentType()).isEqualTo("c");
+  }
+
+  static ResourceMeta resourceMeta(String id) {
+    if ("missing".equals(id)) {
+      return ResourceMeta.getDefaultInstance();
+    }
+    return ResourceMeta.newBuilder().setResourceId(HandleId.newBuilder().setMostSignificantBits(1))
+        .setContentType(id).build();
+  }
+
+  static class SingleOpenService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final AtomicInteger singleCalls = new AtomicInteger();
+
+    @Override
+    public void openResource(ResourceId request, StreamObserver<ResourceMeta> responseObserver) {
+      singleCalls.incrementAndGet();
+      responseObserver.onNext(resourceMeta(request.getResourceId()));
+      responseObserver.onCompleted();
+    }
+  }
+
+  static final class BatchOpenService extends SingleOpenService {
+    final AtomicInteger batchCalls = new AtomicInteger();
+
+    @Override
+    public void openResources(ResourceIds request, StreamObserver<ResourceMeta> responseObserver) {
+      batchCalls.incrementAndGet();
+      request.getResourceIdsList().forEach(id -> responseObserver.onNext(resourceMeta(id)));
+      responseObserver.onCompleted();
+    }
+  }
+}
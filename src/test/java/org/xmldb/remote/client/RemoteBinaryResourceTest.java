@@ -0,0 +1,353 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xmldb.remote.client.Constants.CHUNK_SIZE;
+import static org.xmldb.remote.client.Constants.CONTENT_CACHE;
+import static org.xmldb.remote.client.Constants.CONTENT_CACHE_THRESHOLD;
+import static org.xmldb.remote.client.Constants.STORE_STREAMING;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.Empty;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceData;
+import org.xmldb.api.grpc.ResourceLoadRequest;
+import org.xmldb.api.grpc.ResourceMeta;
+import org.xmldb.api.grpc.ResourceStoreRequest;
+import org.xmldb.api.grpc.ResourceTransferStatus;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.TransferStatus;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.stub.StreamObserver;
+
+class RemoteBinaryResourceTest {
+  static final int CHUNK = 5;
+  static final byte[] CONTENT = content(23);
+
+  ContentService service;
+  InProcessClient inProcess;
+  RemoteCollection collection;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new ContentService();
+    inProcess = InProcessClient.start(service);
+    collection = inProcess.collection();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void contentAsChannel() throws XMLDBException {
+    final RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+
+    storedResource().getContentAsChannel(channel);
+
+    assertThat(channel.content.toByteArray()).isEqualTo(CONTENT);
+    assertThat(channel.writes).hasSize(5).allMatch(ByteBuffer::isReadOnly);
+    assertThat(service.loads).hasValue(1);
+  }
+
+  @Test
+  void contentAsChannelWithPartialWrites() throws XMLDBException {
+    final RecordingChannel channel = new RecordingChannel(2);
+
+    storedResource().getContentAsChannel(channel);
+
+    assertThat(channel.content.toByteArray()).isEqualTo(CONTENT);
+  }
+
+  @Test
+  void localContentAsChannel() throws XMLDBException {
+    final RemoteBinaryResource resource = storedResource();
+    resource.setContent(new byte[] {1, 2, 3});
+    final RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+
+    resource.getContentAsChannel(channel);
+
+    assertThat(channel.content.toByteArray()).containsExactly(1, 2, 3);
+    assertThat(channel.writes).singleElement().matches(ByteBuffer::isReadOnly);
+    assertThat(service.loads).hasValue(0);
+  }
+
+  @Test
+  void contentCacheSpillsPastThreshold() throws XMLDBException, IOException {
+    collection.setProperty(CONTENT_CACHE, "true");
+    collection.setProperty(CONTENT_CACHE_THRESHOLD, "10");
+    final Set<Path> before = ContentBufferTest.tempFiles();
+    final RemoteBinaryResource resource = storedResource();
+
+    final RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+    resource.getContentAsChannel(channel);
+    assertThat(ContentBufferTest.tempFiles()).hasSize(before.size() + 1);
+
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+    assertThat(channel.content.toByteArray()).isEqualTo(CONTENT);
+    final RecordingChannel replayed = new RecordingChannel(Integer.MAX_VALUE);
+    resource.getContentAsChannel(replayed);
+    assertThat(replayed.content.toByteArray()).isEqualTo(CONTENT);
+    assertThat(service.loads).hasValue(1);
+
+    resource.close();
+    assertThat(ContentBufferTest.tempFiles()).isEqualTo(before);
+  }
+
+  @Test
+  void contentCacheKeepsSmallContentOnHeap() throws XMLDBException, IOException {
+    collection.setProperty(CONTENT_CACHE, "true");
+    final Set<Path> before = ContentBufferTest.tempFiles();
+    final RemoteBinaryResource resource = storedResource();
+
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+
+    assertThat(service.loads).hasValue(1);
+    assertThat(ContentBufferTest.tempFiles()).isEqualTo(before);
+  }
+
+  @Test
+  void documentCacheServesReopenedResource() throws XMLDBException {
+    final DocumentCache documentCache = new DocumentCache();
+    documentCache.configure(1024 * 1024, true);
+    final RemoteCollection cachedCollection = inProcess.collection(documentCache);
+
+    assertThat((byte[]) cachedCollection.openedResource("data.bin", meta(1)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat((byte[]) cachedCollection.openedResource("data.bin", meta(1)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat(service.loads).hasValue(1);
+
+    assertThat((byte[]) cachedCollection.openedResource("data.bin", meta(2)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat(service.loads).hasValue(2);
+
+    cachedCollection.storeResource(cachedCollection.openedResource("data.bin", meta(2)));
+    assertThat((byte[]) cachedCollection.openedResource("data.bin", meta(2)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat(service.loads).hasValue(3);
+  }
+
+  @Test
+  void documentCacheSeparatesDatabasePaths() throws XMLDBException {
+    final DocumentCache documentCache = new DocumentCache();
+    documentCache.configure(1024 * 1024, false);
+    final RemoteCollection first = inProcess.collection("/one/db", documentCache);
+    final RemoteCollection second = inProcess.collection("/two/db/", documentCache);
+
+    assertThat(first.path()).isEqualTo("/one/db");
+    assertThat(second.path()).isEqualTo("/two/db");
+    assertThat((byte[]) first.openedResource("data.bin", meta(1)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat((byte[]) second.openedResource("data.bin", meta(1)).getContent())
+        .isEqualTo(CONTENT);
+    assertThat(service.loads).hasValue(2);
+  }
+
+  @Test
+  void streamingStorePipesDeferredSource() throws XMLDBException {
+    collection.setProperty(STORE_STREAMING, "true");
+    collection.setProperty(CHUNK_SIZE, String.valueOf(CHUNK));
+    final TrackingInputStream source = new TrackingInputStream(CONTENT);
+    final RemoteBinaryResource resource = storedResource();
+
+    resource.setContentAsStream(source);
+    assertThat(source.position()).isZero();
+
+    collection.storeResource(resource);
+
+    assertThat(source.closed).isTrue();
+    assertThat(service.streamed).hasSize(5);
+    assertThat(ByteString.copyFrom(service.streamed).toByteArray()).isEqualTo(CONTENT);
+    assertThat(service.inlined).isEmpty();
+  }
+
+  @Test
+  void readingDeferredSourceLoadsItOnce() throws XMLDBException {
+    collection.setProperty(STORE_STREAMING, "true");
+    final TrackingInputStream source = new TrackingInputStream(CONTENT);
+    final RemoteBinaryResource resource = storedResource();
+    resource.setContentAsStream(source);
+
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+    assertThat(source.closed).isTrue();
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+
+    collection.storeResource(resource);
+
+    assertThat(service.inlined).singleElement()
+        .satisfies(chunk -> assertThat(chunk.toByteArray()).isEqualTo(CONTENT));
+    assertThat(service.loads).hasValue(0);
+  }
+
+  @Test
+  void sourceIsReadImmediatelyWithoutStreaming() throws XMLDBException {
+    final TrackingInputStream source = new TrackingInputStream(CONTENT);
+    final RemoteBinaryResource resource = storedResource();
+
+    resource.setContentAsStream(source);
+
+    assertThat(source.position()).isEqualTo(CONTENT.length);
+    assertThat(source.closed).isTrue();
+    assertThat((byte[]) resource.getContent()).isEqualTo(CONTENT);
+  }
+
+  RemoteBinaryResource storedResource() {
+    return new RemoteBinaryResource("data.bin", meta(0), collection);
+  }
+
+  static ResourceMeta meta(long lastModificationTime) {
+    return ResourceMeta.newBuilder().setResourceId(HandleId.newBuilder().setLeastSignificantBits(2))
+        .setType(ResourceType.BINARY).setSize(CONTENT.length)
+        .setLastModificationTime(lastModificationTime).build();
+  }
+
+  static byte[] content(int size) {
+    final byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) i;
+    }
+    return content;
+  }
+
+  /**
+   * Channel accepting at most the given number of bytes per write, recording the buffers passed.
+   */
+  static final class RecordingChannel implements WritableByteChannel {
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final List<ByteBuffer> writes = new ArrayList<>();
+    final int maxWrite;
+
+    RecordingChannel(int maxWrite) {
+      this.maxWrite = maxWrite;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      if (writes.isEmpty() || writes.getLast() != src) {
+        writes.add(src);
+      }
+      final int length = Math.min(maxWrite, src.remaining());
+      for (int i = 0; i < length; i++) {
+        content.write(src.get());
+      }
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+
+  /**
+   * Content source recording how far it was read and whether it was closed.
+   */
+  static final class TrackingInputStream extends ByteArrayInputStream {
+    volatile boolean closed;
+
+    TrackingInputStream(byte[] content) {
+      super(content);
+    }
+
+    synchronized int position() {
+      return pos;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  static final class ContentService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final AtomicInteger loads = new AtomicInteger();
+    final List<ByteString> streamed = new CopyOnWriteArrayList<>();
+    final List<ByteString> inlined = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void loadResourceData(ResourceLoadRequest request,
+        StreamObserver<ResourceData> responseObserver) {
+      loads.incrementAndGet();
+      for (int offset = 0; offset < CONTENT.length; offset += CHUNK) {
+        responseObserver.onNext(ResourceData.newBuilder().setDataChunk(ByteString.copyFrom(
+            Arrays.copyOfRange(CONTENT, offset, Math.min(CONTENT.length, offset + CHUNK))))
+            .build());
+      }
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void closeResource(HandleId request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void storeResource(ResourceStoreRequest request,
+        StreamObserver<ResourceTransferStatus> responseObserver) {
+      inlined.add(request.getDataChunk());
+      responseObserver.onNext(
+          ResourceTransferStatus.newBuilder().setStatus(TransferStatus.SUCCESS).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<ResourceStoreRequest> storeResourceData(
+        StreamObserver<ResourceTransferStatus> responseObserver) {
+      return new StreamObserver<>() {
+        @Override
+        public void onNext(ResourceStoreRequest value) {
+          streamed.add(value.getDataChunk());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          // the client reports the failure
+        }
+
+        @Override
+        public void onCompleted() {
+          responseObserver.onNext(
+              ResourceTransferStatus.newBuilder().setStatus(TransferStatus.SUCCESS).build());
+          responseObserver.onCompleted();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.remote.client.Constants.CHUNK_SIZE;
+import static org.xmldb.remote.client.Constants.COMPRESSION;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+
+class RemoteClientTest {
+  @Test
+  void invalidChunkSizeAcquiresNoChannel() {
+    final ConnectionInfo connectionInfo = connectionInfo(CHUNK_SIZE, "large");
+
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> RemoteClient.create(connectionInfo))
+        .withCauseInstanceOf(NumberFormatException.class);
+    assertThat(ChannelRegistry.getInstance().isRegistered(connectionInfo)).isFalse();
+  }
+
+  @Test
+  void zeroChunkSizeAcquiresNoChannel() {
+    final ConnectionInfo connectionInfo = connectionInfo(CHUNK_SIZE, "0");
+
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> RemoteClient.create(connectionInfo))
+        .withMessageContaining("Non-positive chunk size");
+    assertThat(ChannelRegistry.getInstance().isRegistered(connectionInfo)).isFalse();
+  }
+
+  @Test
+  void unknownCompressionAcquiresNoChannel() {
+    final ConnectionInfo connectionInfo = connectionInfo(COMPRESSION, "unknown");
+
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> RemoteClient.create(connectionInfo))
+        .withMessageContaining("unknown");
+    assertThat(ChannelRegistry.getInstance().isRegistered(connectionInfo)).isFalse();
+  }
+
+  static ConnectionInfo connectionInfo(String name, String value) {
+    final Properties properties = new Properties();
+    properties.setProperty("user", "guest");
+    properties.setProperty(name, value);
+    return new ConnectionInfo("localhost", 9001, "/db", properties);
+  }
+}
@@ -15,6 +15,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 import java.util.Properties;
@@ -80,6 +81,22 @@ class RemoteDatabaseTest {
     assertThatNoException().isThrownBy(collection::close);
   }
 
+  @Test
+  void getCollectionReusesClient() throws XMLDBException {
+    final String uri = "xmldb:grpc://127.0.0.1:9000/db";
+    when(RemoteClient.create(any())).thenReturn(remoteClient);
+    when(remoteClient.retain()).thenReturn(true);
+    when(remoteClient.openRootCollection(uri, properties("guest", "guest")))
+        .thenReturn(CollectionMeta.newBuilder().setName("db").build());
+
+    try (var first = db.getCollection(uri, properties("guest", "guest"));
+        var second = db.getCollection(uri, properties("guest", "guest"))) {
+      assertThat(first).isNotNull();
+      assertThat(second).isNotNull();
+    }
+    remoteClientMock.verify(() -> RemoteClient.create(any()), times(1));
+  }
+
   Properties properties(String user, String pwd) {
     Properties properties = new Properties();
     properties.setProperty("user", user);
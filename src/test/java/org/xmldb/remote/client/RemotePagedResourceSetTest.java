@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.remote.client.Constants.QUERY_PAGE_SIZE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.ResourceIterator;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.Count;
+import org.xmldb.api.grpc.Empty;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.QueryPageRequest;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.XQueryService;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.stub.StreamObserver;
+
+class RemotePagedResourceSetTest {
+  static final int ITEMS = 10;
+
+  CursorService service;
+  InProcessClient inProcess;
+  XQueryService queryService;
+
+  @BeforeEach
+  void setUp() throws IOException, XMLDBException {
+    service = new CursorService();
+    inProcess = InProcessClient.start(service);
+    final RemoteCollection collection = inProcess.collection();
+    collection.setProperty(QUERY_PAGE_SIZE, "4");
+    queryService = collection.findService(XQueryService.class).orElseThrow();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void sizeWithoutFetchingItems() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.query("items");
+
+    assertThat(resourceSet).isInstanceOf(RemotePagedResourceSet.class);
+    assertThat(resourceSet.getSize()).isEqualTo(ITEMS);
+    assertThat(service.pages).isEmpty();
+  }
+
+  @Test
+  void accessPageFetchesNextInAdvance() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.query("items");
+
+    assertThat(resourceSet.getResource(5).getContent()).isEqualTo("<i>5</i>");
+    assertThat(resourceSet.getResource(9).getContent()).isEqualTo("<i>9</i>");
+    assertThat(service.pages).containsExactlyInAnyOrder(4L, 8L);
+    assertThatExceptionOfType(XMLDBException.class).isThrownBy(() -> resourceSet.getResource(10));
+  }
+
+  @Test
+  void iterateAllPages() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.query("items");
+    final List<Object> contents = new ArrayList<>();
+    for (ResourceIterator iterator = resourceSet.getIterator(); iterator.hasMoreResources();) {
+      contents.add(iterator.nextResource().getContent());
+    }
+
+    assertThat(contents).hasSize(ITEMS).startsWith("<i>0</i>").endsWith("<i>9</i>");
+    assertThat(resourceSet.getSize()).isEqualTo(ITEMS);
+    assertThat(service.sizes).hasValue(0);
+  }
+
+  @Test
+  void closeReleasesCursor() throws XMLDBException {
+    final RemotePagedResourceSet resourceSet =
+        (RemotePagedResourceSet) queryService.query("items");
+    resourceSet.getResource(0);
+
+    resourceSet.close();
+
+    assertThat(resourceSet.isClosed()).isTrue();
+    assertThat(resourceSet.getSize()).isZero();
+    assertThat(service.closed).hasValue(1);
+  }
+
+  @Test
+  void closedByTryWithResources() throws XMLDBException {
+    try (RemotePagedResourceSet resourceSet =
+        (RemotePagedResourceSet) queryService.query("items")) {
+      assertThat(resourceSet.getResource(0).getContent()).isEqualTo("<i>0</i>");
+    }
+
+    assertThat(service.closed).hasValue(1);
+  }
+
+  @Test
+  void streamWithoutCursorSupport() throws XMLDBException {
+    service.cursorSupported = false;
+    final ResourceSet resourceSet = queryService.query("items");
+
+    assertThat(resourceSet).isInstanceOf(RemoteResourceSet.class);
+    assertThat(resourceSet.getSize()).isEqualTo(ITEMS);
+  }
+
+  static QueryResult item(long index) {
+    return QueryResult.newBuilder().setItemIndex(index).setType(ResourceType.XML)
+        .setDataChunk(ByteString.copyFrom("<i>%d</i>".formatted(index), UTF_8))
+        .setLastChunk(true).build();
+  }
+
+  static final class CursorService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final List<Long> pages = new CopyOnWriteArrayList<>();
+    final AtomicInteger sizes = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+    volatile boolean cursorSupported = true;
+
+    @Override
+    public void openQueryCursor(QueryRequest request, StreamObserver<HandleId> responseObserver) {
+      if (!cursorSupported) {
+        super.openQueryCursor(request, responseObserver);
+        return;
+      }
+      responseObserver.onNext(HandleId.newBuilder().setLeastSignificantBits(7).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void fetchQueryPage(QueryPageRequest request,
+        StreamObserver<QueryResult> responseObserver) {
+      pages.add(request.getOffset());
+      for (long index = request.getOffset();
+          index < Math.min(ITEMS, request.getOffset() + request.getCount()); index++) {
+        responseObserver.onNext(item(index));
+      }
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void queryCursorSize(HandleId request, StreamObserver<Count> responseObserver) {
+      sizes.incrementAndGet();
+      responseObserver.onNext(Count.newBuilder().setCount(ITEMS).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void closeQueryCursor(HandleId request, StreamObserver<Empty> responseObserver) {
+      closed.incrementAndGet();
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void query(QueryRequest request, StreamObserver<QueryResult> responseObserver) {
+      for (long index = 0; index < ITEMS; index++) {
+        responseObserver.onNext(item(index));
+      }
+      responseObserver.onCompleted();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.ResourceIterator;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.XMLResource;
+import org.xmldb.api.modules.XQueryService;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.stub.StreamObserver;
+
+class RemoteResourceSetTest {
+  InProcessClient inProcess;
+  XQueryService queryService;
+
+  @BeforeEach
+  void setUp() throws IOException, XMLDBException {
+    inProcess = InProcessClient.start(new QueryService());
+    final RemoteCollection collection = inProcess.collection();
+    queryService = collection.findService(XQueryService.class).orElseThrow();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void iterateItems() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.query("items");
+    final List<Object> contents = new ArrayList<>();
+    for (ResourceIterator iterator = resourceSet.getIterator(); iterator.hasMoreResources();) {
+      contents.add(iterator.nextResource().getContent());
+    }
+    assertThat(contents).containsExactly("<a>1</a>", "<b/>", "text");
+    assertThat(resourceSet.getSize()).isEqualTo(3);
+  }
+
+  @Test
+  void accessByIndex() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.queryResource("doc", "items");
+    final Resource first = resourceSet.getResource(0);
+    assertThat(first).isInstanceOf(XMLResource.class);
+    assertThat(first.getId()).isEqualTo("doc");
+    assertThat(resourceSet.getResource(2).getId()).isNull();
+    assertThatExceptionOfType(XMLDBException.class).isThrownBy(() -> resourceSet.getResource(3));
+  }
+
+  @Test
+  void closeBeforeAllItemsRead() throws XMLDBException {
+    final RemoteResourceSet resourceSet = (RemoteResourceSet) queryService.query("items");
+    assertThat(resourceSet.getResource(0).getContent()).isEqualTo("<a>1</a>");
+
+    resourceSet.close();
+
+    assertThat(resourceSet.isClosed()).isTrue();
+    assertThat(resourceSet.getSize()).isZero();
+  }
+
+  @Test
+  void closedByTryWithResources() throws XMLDBException {
+    final RemoteResourceSet closed;
+    try (RemoteResourceSet resourceSet = (RemoteResourceSet) queryService.query("items")) {
+      assertThat(resourceSet.getResource(0).getContent()).isEqualTo("<a>1</a>");
+      closed = resourceSet;
+    }
+
+    assertThat(closed.isClosed()).isTrue();
+  }
+
+  @Test
+  void incompleteItem() throws XMLDBException {
+    final ResourceSet resourceSet = queryService.query("incomplete");
+    assertThatExceptionOfType(XMLDBException.class).isThrownBy(resourceSet::getSize);
+  }
+
+  static QueryResult chunk(int index, String data, boolean last) {
+    return QueryResult.newBuilder().setItemIndex(index).setType(ResourceType.XML)
+        .setDataChunk(ByteString.copyFrom(data, UTF_8)).setLastChunk(last).build();
+  }
+
+  static final class QueryService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    @Override
+    public void query(QueryRequest request, StreamObserver<QueryResult> responseObserver) {
+      if ("incomplete".equals(request.getQuery())) {
+        responseObserver.onNext(chunk(0, "<a>", false));
+      } else {
+        final QueryResult first = chunk(0, "<a>", false);
+        responseObserver.onNext(request.hasResourceId()
+            ? first.toBuilder().setDocumentId(request.getResourceId()).build()
+            : first);
+        responseObserver.onNext(chunk(0, "1</a>", true));
+        responseObserver.onNext(chunk(1, "<b/>", true));
+        responseObserver.onNext(chunk(2, "text", true));
+      }
+      responseObserver.onCompleted();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.remote.client.Constants.CONTENT_CACHE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.ResourceData;
+import org.xmldb.api.grpc.ResourceLoadRequest;
+import org.xmldb.api.grpc.ResourceMeta;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.XQueryService;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.stub.StreamObserver;
+
+class RemoteXMLResourceTest {
+  static final List<String> CHUNKS = List.of("<doc xmlns=\"urn:d\"><a>1</a>", "<b>2", "</b></doc>");
+
+  ContentService service;
+  InProcessClient inProcess;
+  RemoteCollection collection;
+  XQueryService queryService;
+
+  @BeforeEach
+  void setUp() throws IOException, XMLDBException {
+    service = new ContentService();
+    inProcess = InProcessClient.start(service);
+    collection = inProcess.collection();
+    queryService = collection.findService(XQueryService.class).orElseThrow();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void queryItemAsSAX() throws XMLDBException {
+    final RemoteXMLResource resource =
+        (RemoteXMLResource) queryService.query("doc").getResource(0);
+    final ElementCollector handler = new ElementCollector();
+
+    resource.getContentAsSAX(handler);
+
+    assertThat(handler.elements).containsExactly("{urn:d}doc", "{urn:d}a", "{urn:d}b");
+  }
+
+  @Test
+  void queryItemAsStAX() throws XMLDBException, XMLStreamException {
+    final RemoteXMLResource resource =
+        (RemoteXMLResource) queryService.query("doc").getResource(0);
+
+    assertThat(elements(resource.getContentAsStAX())).containsExactly("doc", "a", "b");
+  }
+
+  @Test
+  void invalidContent() throws XMLDBException {
+    final RemoteXMLResource resource =
+        (RemoteXMLResource) queryService.query("text").getResource(0);
+
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> resource.getContentAsSAX(new DefaultHandler()));
+  }
+
+  @Test
+  void storedResourceAsStAX() throws XMLDBException, XMLStreamException {
+    collection.setProperty(CONTENT_CACHE, "true");
+    final RemoteXMLResource resource = new RemoteXMLResource("doc.xml", ResourceMeta.newBuilder()
+        .setResourceId(HandleId.newBuilder().setLeastSignificantBits(2)).setType(ResourceType.XML)
+        .build(), collection);
+
+    assertThat(elements(resource.getContentAsStAX())).containsExactly("doc", "a", "b");
+    assertThat(resource.getContent()).isEqualTo(String.join("", CHUNKS));
+    assertThat(service.loads).hasValue(1);
+  }
+
+  @Test
+  void storedResourceAsSAX() throws XMLDBException {
+    final RemoteXMLResource resource = new RemoteXMLResource("doc.xml", ResourceMeta.newBuilder()
+        .setResourceId(HandleId.newBuilder().setLeastSignificantBits(2)).setType(ResourceType.XML)
+        .build(), collection);
+    final ElementCollector handler = new ElementCollector();
+
+    resource.getContentAsSAX(handler);
+
+    assertThat(handler.elements).containsExactly("{urn:d}doc", "{urn:d}a", "{urn:d}b");
+  }
+
+  @Test
+  void externalEntityIsNotResolved(@TempDir Path directory) throws IOException, XMLDBException {
+    final Path secret = Files.writeString(directory.resolve("secret.txt"), "secret");
+    service.document = "<!DOCTYPE doc [<!ENTITY ext SYSTEM \"%s\">]><doc>&ext;</doc>"
+        .formatted(secret.toUri());
+    final RemoteXMLResource resource =
+        (RemoteXMLResource) queryService.query("document").getResource(0);
+    final StringBuilder text = new StringBuilder();
+
+    resource.getContentAsSAX(new DefaultHandler() {
+      @Override
+      public void characters(char[] ch, int start, int length) {
+        text.append(ch, start, length);
+      }
+    });
+
+    assertThat(text).doesNotContain("secret");
+  }
+
+  static List<String> elements(XMLStreamReader reader) throws XMLStreamException {
+    final List<String> elements = new ArrayList<>();
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          elements.add(reader.getLocalName());
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return elements;
+  }
+
+  static final class ElementCollector extends DefaultHandler {
+    final List<String> elements = new ArrayList<>();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      elements.add("{%s}%s".formatted(uri, localName));
+    }
+  }
+
+  static final class ContentService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final AtomicInteger loads = new AtomicInteger();
+    volatile String document;
+
+    @Override
+    public void loadResourceData(ResourceLoadRequest request,
+        StreamObserver<ResourceData> responseObserver) {
+      loads.incrementAndGet();
+      for (String chunk : CHUNKS) {
+        responseObserver.onNext(
+            ResourceData.newBuilder().setDataChunk(ByteString.copyFrom(chunk, UTF_8)).build());
+      }
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void query(QueryRequest request, StreamObserver<QueryResult> responseObserver) {
+      final List<String> chunks = switch (request.getQuery()) {
+        case "doc" -> CHUNKS;
+        case "document" -> List.of(document);
+        default -> List.of("text");
+      };
+      for (int index = 0; index < chunks.size(); index++) {
+        responseObserver.onNext(QueryResult.newBuilder().setType(ResourceType.XML)
+            .setDataChunk(ByteString.copyFrom(chunks.get(index), UTF_8))
+            .setLastChunk(index == chunks.size() - 1).build());
+      }
+      responseObserver.onCompleted();
+    }
+  }
+}
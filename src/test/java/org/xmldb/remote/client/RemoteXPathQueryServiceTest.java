@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.remote.client.InProcessClient.unknownHandle;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.NamespaceContext;
+import org.xmldb.api.grpc.QueryLanguage;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.XPathQueryService;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+class RemoteXPathQueryServiceTest {
+  NamespaceService service;
+  InProcessClient inProcess;
+  XPathQueryService queryService;
+
+  @BeforeEach
+  void setUp() throws IOException, XMLDBException {
+    service = new NamespaceService();
+    inProcess = InProcessClient.start(service);
+    final RemoteCollection collection = inProcess.collection();
+    queryService = collection.findService(XPathQueryService.class).orElseThrow();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void namespaceMap() throws XMLDBException {
+    queryService.setNamespace("a", "urn:a");
+    queryService.setNamespace(null, "urn:default");
+
+    assertThat(queryService.getNamespace("a")).isEqualTo("urn:a");
+    assertThat(queryService.getNamespace("")).isEqualTo("urn:default");
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> queryService.setNamespace("b", ""));
+
+    queryService.removeNamespace("a");
+    assertThat(queryService.getNamespace("a")).isNull();
+    queryService.clearNamespaces();
+    assertThat(queryService.getNamespace(null)).isNull();
+  }
+
+  @Test
+  void namespacesAreRegisteredOncePerVersion() throws XMLDBException {
+    queryService.setNamespace("a", "urn:a");
+    queryService.setNamespace("b", "urn:b");
+
+    assertThat(queryService.query("//a:x").getResource(0).getContent()).isEqualTo("a=urn:a");
+    assertThat(queryService.query("//b:x").getResource(0).getContent()).isEqualTo("b=urn:b");
+    assertThat(service.registered).hasSize(1);
+
+    queryService.setNamespace("a", "urn:other");
+    assertThat(queryService.query("//a:x").getResource(0).getContent()).isEqualTo("a=urn:other");
+    assertThat(service.registered).hasSize(2);
+    assertThat(service.languages).containsOnly(QueryLanguage.XPATH);
+  }
+
+  @Test
+  void registersAgainWhenContextIsUnknown() throws XMLDBException {
+    queryService.setNamespace("a", "urn:a");
+    queryService.query("//a:x");
+    service.contexts.clear();
+
+    assertThat(queryService.query("//a:x").getResource(0).getContent()).isEqualTo("a=urn:a");
+    assertThat(service.registered).hasSize(2);
+  }
+
+  @Test
+  void missingResourceIsNotRetried() throws XMLDBException {
+    queryService.setNamespace("a", "urn:a");
+
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> queryService.queryResource("missing", "//a:x"));
+    assertThat(service.registered).hasSize(1);
+    assertThat(service.languages).hasSize(1);
+  }
+
+  @Test
+  void inlineNamespacesWithoutRegistrationSupport() throws XMLDBException {
+    service.registerSupported = false;
+    queryService.setNamespace("a", "urn:a");
+
+    assertThat(queryService.query("//a:x").getResource(0).getContent()).isEqualTo("a=urn:a");
+    assertThat(queryService.query("//a:x").getResource(0).getContent()).isEqualTo("a=urn:a");
+    assertThat(service.registered).isEmpty();
+  }
+
+  static final class NamespaceService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final Map<Long, NamespaceContext> contexts = new ConcurrentHashMap<>();
+    final List<NamespaceContext> registered = new CopyOnWriteArrayList<>();
+    final List<QueryLanguage> languages = new CopyOnWriteArrayList<>();
+    final AtomicInteger ids = new AtomicInteger();
+    volatile boolean registerSupported = true;
+
+    @Override
+    public void registerNamespaces(NamespaceContext request,
+        StreamObserver<HandleId> responseObserver) {
+      if (!registerSupported) {
+        super.registerNamespaces(request, responseObserver);
+        return;
+      }
+      final long id = ids.incrementAndGet();
+      contexts.put(id, request);
+      registered.add(request);
+      responseObserver.onNext(HandleId.newBuilder().setLeastSignificantBits(id).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void query(QueryRequest request, StreamObserver<QueryResult> responseObserver) {
+      languages.add(request.getLanguage());
+      if (request.getResourceId().equals("missing")) {
+        responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+        return;
+      }
+      final NamespaceContext context;
+      if (request.hasNamespaceContextId()) {
+        context = contexts.get(request.getNamespaceContextId().getLeastSignificantBits());
+        if (context == null) {
+          responseObserver.onError(unknownHandle(RemoteClient.NAMESPACE_CONTEXT_HANDLE));
+          return;
+        }
+      } else {
+        context = NamespaceContext.newBuilder().addAllNamespaces(request.getNamespacesList())
+            .build();
+      }
+      final String prefix = request.getQuery().substring(2, request.getQuery().indexOf(':'));
+      final String uri = context.getNamespacesList().stream()
+          .filter(namespace -> namespace.getPrefix().equals(prefix)).findFirst().orElseThrow()
+          .getUri();
+      responseObserver.onNext(QueryResult.newBuilder().setType(ResourceType.XML)
+          .setDataChunk(ByteString.copyFrom(prefix + "=" + uri, UTF_8)).setLastChunk(true)
+          .build());
+      responseObserver.onCompleted();
+    }
+  }
+}
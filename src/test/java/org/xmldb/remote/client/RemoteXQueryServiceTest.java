@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.xmldb.remote.client.InProcessClient.unknownHandle;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.CompiledExpression;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.CompileRequest;
+import org.xmldb.api.grpc.Empty;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.Namespace;
+import org.xmldb.api.grpc.QueryRequest;
+import org.xmldb.api.grpc.QueryResult;
+import org.xmldb.api.grpc.QueryVariable;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.XQueryService;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+class RemoteXQueryServiceTest {
+  CompilingService service;
+  InProcessClient inProcess;
+  XQueryService queryService;
+
+  @BeforeEach
+  void setUp() throws IOException, XMLDBException {
+    service = new CompilingService();
+    inProcess = InProcessClient.start(service);
+    final RemoteCollection collection = inProcess.collection();
+    queryService = collection.findService(XQueryService.class).orElseThrow();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void repeatedQueriesAreCompiledOnce() throws XMLDBException {
+    assertThat(queryService.query("$x").getResource(0).getContent()).isEqualTo("$x");
+    assertThat(queryService.query("$x").getResource(0).getContent()).isEqualTo("$x");
+
+    assertThat(service.compiles).hasValue(1);
+    assertThat(service.texts).isEmpty();
+  }
+
+  @Test
+  void executeSendsHandleAndVariables() throws XMLDBException {
+    final CompiledExpression expression = queryService.compile("$x");
+    queryService.declareVariable("x", 42);
+
+    assertThat(queryService.execute(expression).getResource(0).getContent()).isEqualTo("$x");
+    assertThat(service.variables).singleElement()
+        .satisfies(variable -> assertThat(variable.getIntegerValue()).isEqualTo(42));
+  }
+
+  @Test
+  void compilesAgainWhenHandleIsUnknown() throws XMLDBException {
+    final CompiledExpression expression = queryService.compile("$x");
+    service.compiled.clear();
+
+    assertThat(queryService.execute(expression).getResource(0).getContent()).isEqualTo("$x");
+    assertThat(service.compiles).hasValue(2);
+  }
+
+  @Test
+  void executeUsesNamespacesOfCompile() throws XMLDBException {
+    queryService.setNamespace("a", "urn:a");
+    final CompiledExpression expression = queryService.compile("$x");
+    queryService.setNamespace("a", "urn:other");
+
+    queryService.execute(expression);
+    assertThat(service.namespaces).singleElement()
+        .satisfies(namespace -> assertThat(namespace.getUri()).isEqualTo("urn:a"));
+
+    service.compiled.clear();
+    queryService.execute(expression);
+    assertThat(service.compiles).hasValue(2);
+    assertThat(service.namespaces).singleElement()
+        .satisfies(namespace -> assertThat(namespace.getUri()).isEqualTo("urn:a"));
+  }
+
+  @Test
+  void missingResourceIsNotRetried() throws XMLDBException {
+    assertThatExceptionOfType(XMLDBException.class)
+        .isThrownBy(() -> queryService.queryResource("missing", "$x"));
+
+    assertThat(service.compiles).hasValue(1);
+    assertThat(service.queries).hasValue(1);
+  }
+
+  @Test
+  void queryTextWithoutCompileSupport() throws XMLDBException {
+    service.compileSupported = false;
+
+    assertThat(queryService.query("$x").getResource(0).getContent()).isEqualTo("$x");
+    assertThat(queryService.query("$x").getResource(0).getContent()).isEqualTo("$x");
+    assertThat(service.texts).containsExactly("$x", "$x");
+  }
+
+  static final class CompilingService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final Map<Long, String> compiled = new ConcurrentHashMap<>();
+    final List<String> texts = new CopyOnWriteArrayList<>();
+    final AtomicInteger compiles = new AtomicInteger();
+    final AtomicInteger queries = new AtomicInteger();
+    volatile List<QueryVariable> variables = List.of();
+    volatile List<Namespace> namespaces = List.of();
+    volatile boolean compileSupported = true;
+
+    @Override
+    public void compile(CompileRequest request, StreamObserver<HandleId> responseObserver) {
+      if (!compileSupported) {
+        super.compile(request, responseObserver);
+        return;
+      }
+      final long id = compiles.incrementAndGet();
+      compiled.put(id, request.getQuery());
+      responseObserver.onNext(HandleId.newBuilder().setLeastSignificantBits(id).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void releaseCompiled(HandleId request, StreamObserver<Empty> responseObserver) {
+      compiled.remove(request.getLeastSignificantBits());
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void query(QueryRequest request, StreamObserver<QueryResult> responseObserver) {
+      queries.incrementAndGet();
+      if (request.getResourceId().equals("missing")) {
+        responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+        return;
+      }
+      final String query;
+      if (request.hasCompiledId()) {
+        query = compiled.get(request.getCompiledId().getLeastSignificantBits());
+        if (query == null) {
+          responseObserver.onError(unknownHandle(RemoteClient.COMPILED_HANDLE));
+          return;
+        }
+      } else {
+        query = request.getQuery();
+        texts.add(query);
+      }
+      variables = request.getVariablesList();
+      namespaces = request.getNamespacesList();
+      responseObserver.onNext(QueryResult.newBuilder().setType(ResourceType.XML)
+          .setDataChunk(ByteString.copyFrom(query, UTF_8)).setLastChunk(true).build());
+      responseObserver.onCompleted();
+    }
+  }
+}
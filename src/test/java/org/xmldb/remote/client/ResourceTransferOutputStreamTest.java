@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.xmldb.api.grpc.CreateResourceMeta;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.ResourceStoreRequest;
+
+import io.grpc.stub.StreamObserver;
+
+@MockitoSettings
+class ResourceTransferOutputStreamTest {
+  static final CreateResourceMeta CREATE = CreateResourceMeta.newBuilder()
+      .setResourceId(ResourceId.newBuilder().setResourceId("test")).build();
+
+  @Mock
+  StreamObserver<ResourceStoreRequest> observer;
+  @Captor
+  ArgumentCaptor<ResourceStoreRequest> requests;
+
+  @Test
+  void singleByteWritesAreCoalesced() throws IOException {
+    try (var outputStream = outputStream(4)) {
+      for (int i = 0; i < 10; i++) {
+        outputStream.write(i);
+      }
+      assertThat(outputStream.getBytesWritten()).isEqualTo(10);
+    }
+    verify(observer, times(3)).onNext(requests.capture());
+    assertThat(requests.getAllValues()).extracting(request -> request.getDataChunk().size())
+        .containsExactly(4, 4, 2);
+  }
+
+  @Test
+  void largeWritesAreSplit() throws IOException {
+    try (var outputStream = outputStream(4)) {
+      outputStream.write(new byte[3]);
+      outputStream.write(new byte[10]);
+    }
+    verify(observer, times(4)).onNext(requests.capture());
+    assertThat(requests.getAllValues()).extracting(request -> request.getDataChunk().size())
+        .containsExactly(4, 4, 4, 1);
+  }
+
+  @Test
+  void sentChunksAreNotOverwritten() throws IOException {
+    final byte[] caller = {8, 9, 10, 11};
+    try (var outputStream = outputStream(4)) {
+      for (int i = 0; i < 8; i++) {
+        outputStream.write(i);
+      }
+      outputStream.write(caller);
+      caller[0] = -1;
+      outputStream.write(caller, 0, 2);
+    }
+    verify(observer, times(4)).onNext(requests.capture());
+    assertThat(requests.getAllValues()).extracting(request -> request.getDataChunk().toByteArray())
+        .containsExactly(new byte[] {0, 1, 2, 3}, new byte[] {4, 5, 6, 7},
+            new byte[] {8, 9, 10, 11}, new byte[] {-1, 9});
+  }
+
+  @Test
+  void flushSendsPartialChunk() throws IOException {
+    var outputStream = outputStream(4);
+    outputStream.write(new byte[3]);
+    verifyNoInteractions(observer);
+
+    outputStream.flush();
+    outputStream.flush();
+    verify(observer).onNext(requests.capture());
+    assertThat(requests.getValue().getDataChunk().size()).isEqualTo(3);
+  }
+
+  @Test
+  void writeAfterClose() throws IOException {
+    var outputStream = outputStream(4);
+    outputStream.close();
+    assertThatExceptionOfType(IOException.class).isThrownBy(() -> outputStream.write(1));
+    verifyNoInteractions(observer);
+  }
+
+  @Test
+  void creationIsSentWithFirstChunk() throws IOException {
+    try (var outputStream = new ResourceTransferOutputStream(
+        ResourceStoreRequest.newBuilder().setCreate(CREATE), observer, 4)) {
+      outputStream.write(new byte[6]);
+    }
+    verify(observer, times(2)).onNext(requests.capture());
+    assertThat(requests.getAllValues()).extracting(ResourceStoreRequest::hasCreate)
+        .containsExactly(true, false);
+  }
+
+  @Test
+  void creationIsSentWithoutContent() throws IOException {
+    new ResourceTransferOutputStream(ResourceStoreRequest.newBuilder().setCreate(CREATE), observer,
+        4).close();
+    verify(observer).onNext(requests.capture());
+    assertThat(requests.getValue().getCreate()).isEqualTo(CREATE);
+    assertThat(requests.getValue().getDataChunk().isEmpty()).isTrue();
+  }
+
+  ResourceTransferOutputStream outputStream(int chunkSize) {
+    return new ResourceTransferOutputStream(ResourceStoreRequest.newBuilder(), observer,
+        chunkSize);
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.xmldb.remote.client.Constants.STORE_STREAMING;
+import static org.xmldb.remote.client.Constants.STORE_WRITE_TIMEOUT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceMeta;
+import org.xmldb.api.grpc.ResourceStoreRequest;
+import org.xmldb.api.grpc.ResourceTransferStatus;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.TransferStatus;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+class StoreFlowControlTest {
+  static final int SIZE = 1024 * 1024;
+  static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  PacedService service;
+  InProcessClient inProcess;
+  RemoteCollection collection;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new PacedService();
+    inProcess = InProcessClient.start(service);
+    collection = inProcess.collection();
+    collection.setProperty(STORE_STREAMING, "true");
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void uploadWaitsUntilServerRequestsMore() throws Exception {
+    final CountingInputStream source = new CountingInputStream(SIZE);
+    final RemoteBinaryResource resource = resource();
+    resource.setContentAsStream(source);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final Future<?> store = executor.submit(() -> {
+        collection.storeResource(resource);
+        return null;
+      });
+
+      assertThat(service.firstChunk.await(5, TimeUnit.SECONDS)).isTrue();
+      Thread.sleep(200);
+      // the transport is not ready while the server holds back its demand
+      assertThat(store).isNotDone();
+      assertThat(source.bytesRead).hasValueLessThan(SIZE / 4);
+      assertThat(service.bytesReceived).hasValueLessThan(SIZE / 4);
+
+      service.call.request(Integer.MAX_VALUE);
+
+      assertThat(store).succeedsWithin(TIMEOUT);
+    }
+    assertThat(source.bytesRead).hasValue(SIZE);
+    assertThat(service.bytesReceived).hasValue(SIZE);
+  }
+
+  @Test
+  void failingSourceCancelsUpload() throws Exception {
+    final RemoteBinaryResource resource = resource();
+    resource.setContentAsStream(new InputStream() {
+      @Override
+      public int read() {
+        throw new IllegalStateException("source failed");
+      }
+    });
+
+    assertThatIllegalStateException().isThrownBy(() -> collection.storeResource(resource))
+        .withMessage("source failed");
+    assertThat(service.failed.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void uploadFailsIfServerNeverRequests() throws Exception {
+    service.initialRequest = 0;
+    final Properties info = new Properties();
+    info.setProperty(STORE_WRITE_TIMEOUT, "200");
+    try (InProcessClient stalled = InProcessClient.start(service, info, builder -> {
+    })) {
+      final RemoteCollection stalledCollection = stalled.collection();
+      stalledCollection.setProperty(STORE_STREAMING, "true");
+      final RemoteBinaryResource resource = resource(stalledCollection);
+      resource.setContentAsStream(new CountingInputStream(SIZE));
+
+      assertThatExceptionOfType(XMLDBException.class)
+          .isThrownBy(() -> stalledCollection.storeResource(resource))
+          .withStackTraceContaining("did not accept more content within 200 ms");
+      assertThat(service.failed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
+  RemoteBinaryResource resource() {
+    return resource(collection);
+  }
+
+  static RemoteBinaryResource resource(RemoteCollection collection) {
+    return new RemoteBinaryResource("data.bin",
+        ResourceMeta.newBuilder().setResourceId(HandleId.newBuilder().setLeastSignificantBits(2))
+            .setType(ResourceType.BINARY).build(),
+        collection);
+  }
+
+  /**
+   * Content source counting the bytes read from it.
+   */
+  static final class CountingInputStream extends InputStream {
+    final AtomicLong bytesRead = new AtomicLong();
+    final long size;
+
+    CountingInputStream(long size) {
+      this.size = size;
+    }
+
+    @Override
+    public int read() {
+      final byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      final int read = (int) Math.min(length, size - bytesRead.get());
+      if (read <= 0) {
+        return length == 0 ? 0 : -1;
+      }
+      bytesRead.addAndGet(read);
+      return read;
+    }
+  }
+
+  /**
+   * Receives uploads without requesting further messages after the first one, until the test
+   * requests them explicitly.
+   */
+  static final class PacedService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final CountDownLatch firstChunk = new CountDownLatch(1);
+    final CountDownLatch failed = new CountDownLatch(1);
+    final AtomicLong bytesReceived = new AtomicLong();
+    volatile int initialRequest = 1;
+    volatile ServerCallStreamObserver<ResourceTransferStatus> call;
+
+    @Override
+    public StreamObserver<ResourceStoreRequest> storeResourceData(
+        StreamObserver<ResourceTransferStatus> responseObserver) {
+      call = (ServerCallStreamObserver<ResourceTransferStatus>) responseObserver;
+      call.disableAutoRequest();
+      if (initialRequest > 0) {
+        call.request(initialRequest);
+      }
+      return new StreamObserver<>() {
+        @Override
+        public void onNext(ResourceStoreRequest value) {
+          bytesReceived.addAndGet(value.getDataChunk().size());
+          firstChunk.countDown();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          failed.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+          responseObserver.onNext(
+              ResourceTransferStatus.newBuilder().setStatus(TransferStatus.SUCCESS).build());
+          responseObserver.onCompleted();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.xmldb.api.base.ErrorCodes.INVALID_RESOURCE;
+import static org.xmldb.remote.client.Constants.STORE_PARALLELISM;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.grpc.CreateResourceMeta;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceMeta;
+import org.xmldb.api.grpc.ResourceStoreRequest;
+import org.xmldb.api.grpc.ResourceTransferStatus;
+import org.xmldb.api.grpc.ResourceType;
+import org.xmldb.api.grpc.TransferStatus;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+import org.xmldb.api.modules.BinaryResource;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+class StoreResourcesTest {
+  static final int RESOURCES = 20;
+  static final int PARALLELISM = 4;
+
+  StoreService service;
+  InProcessClient inProcess;
+  RemoteCollection collection;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new StoreService();
+    inProcess = InProcessClient.start(service);
+    collection = inProcess.collection();
+    collection.setProperty(STORE_PARALLELISM, String.valueOf(PARALLELISM));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void storeResources() throws Exception {
+    service.saturated = new CountDownLatch(PARALLELISM);
+    final List<Resource> resources = new ArrayList<>();
+    for (int i = 0; i < RESOURCES; i++) {
+      final BinaryResource resource = (BinaryResource) collection.newResource("r" + i,
+          ResourceMeta.newBuilder().setType(ResourceType.BINARY)
+              .setResourceId(HandleId.newBuilder().setLeastSignificantBits(i)).build());
+      resource.setContent(new byte[] {(byte) i});
+      resources.add(resource);
+    }
+    final Resource unsupported = mock(Resource.class);
+    resources.add(unsupported);
+
+    final List<StoreResult> results = collection.storeResources(resources);
+
+    assertThat(results).hasSize(RESOURCES + 1).extracting(StoreResult::resource)
+        .containsExactlyElementsOf(resources);
+    assertThat(results.subList(0, RESOURCES)).allMatch(StoreResult::isSuccess);
+    assertThat(results.getLast().isSuccess()).isFalse();
+    assertThat(results.getLast().failure().errorCode).isEqualTo(INVALID_RESOURCE);
+    assertThat(service.stored).hasSize(RESOURCES);
+    assertThat(service.maxConcurrent).hasValue(PARALLELISM);
+    assertThat(service.concurrent).hasValue(0);
+  }
+
+  @Test
+  void createAndStoreInline() throws Exception {
+    service.inline = true;
+    final BinaryResource resource = collection.createResource("new", BinaryResource.class);
+    resource.setContent(new byte[] {1, 2, 3});
+
+    collection.storeResource(resource);
+
+    assertThat(service.created).containsExactly("new");
+    assertThat(service.stored).containsEntry(42L, 3);
+    assertThat(resource.getLastModificationTime().toEpochMilli()).isEqualTo(4711);
+  }
+
+  @Test
+  void createBeforeStreamingWithoutInlineSupport() throws Exception {
+    final BinaryResource resource = collection.createResource("new", BinaryResource.class);
+    resource.setContent(new byte[] {1, 2, 3});
+
+    collection.storeResource(resource);
+
+    assertThat(service.created).containsExactly("new");
+    assertThat(service.stored).containsEntry(42L, 3);
+  }
+
+  static final class StoreService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    final Map<Long, Integer> stored = new ConcurrentHashMap<>();
+    final List<String> created = new CopyOnWriteArrayList<>();
+    volatile boolean inline;
+    final AtomicInteger concurrent = new AtomicInteger();
+    final AtomicInteger maxConcurrent = new AtomicInteger();
+    volatile CountDownLatch saturated = new CountDownLatch(0);
+
+    static ResourceMeta createdMeta() {
+      return ResourceMeta.newBuilder().setType(ResourceType.BINARY).setLastModificationTime(4711)
+          .setResourceId(HandleId.newBuilder().setLeastSignificantBits(42)).build();
+    }
+
+    @Override
+    public void createResource(CreateResourceMeta request,
+        StreamObserver<ResourceMeta> responseObserver) {
+      created.add(request.getResourceId().getResourceId());
+      responseObserver.onNext(createdMeta());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void storeResource(ResourceStoreRequest request,
+        StreamObserver<ResourceTransferStatus> responseObserver) {
+      if (!inline) {
+        super.storeResource(request, responseObserver);
+        return;
+      }
+      created.add(request.getCreate().getResourceId().getResourceId());
+      stored.put(42L, request.getDataChunk().size());
+      responseObserver.onNext(ResourceTransferStatus.newBuilder()
+          .setStatus(TransferStatus.SUCCESS).setMeta(createdMeta()).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<ResourceStoreRequest> storeResourceData(
+        StreamObserver<ResourceTransferStatus> responseObserver) {
+      maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+      saturated.countDown();
+      return new StreamObserver<>() {
+        long resourceId;
+        int size;
+
+        @Override
+        public void onNext(ResourceStoreRequest value) {
+          resourceId = value.getResourceId().getLeastSignificantBits();
+          size += value.getDataChunk().size();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          concurrent.decrementAndGet();
+        }
+
+        @Override
+        public void onCompleted() {
+          // hold the first uploads until as many uploads are in flight as the client allows
+          try {
+            if (!saturated.await(5, TimeUnit.SECONDS)) {
+              concurrent.decrementAndGet();
+              responseObserver.onError(Status.DEADLINE_EXCEEDED
+                  .withDescription("Uploads not run in parallel").asRuntimeException());
+              return;
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          concurrent.decrementAndGet();
+          stored.put(resourceId, size);
+          responseObserver.onNext(
+              ResourceTransferStatus.newBuilder().setStatus(TransferStatus.SUCCESS).build());
+          responseObserver.onCompleted();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License") you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.xmldb.remote.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xmldb.remote.client.Constants.EXECUTOR;
+import static org.xmldb.remote.client.Constants.EXECUTOR_VIRTUAL;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xmldb.api.grpc.Count;
+import org.xmldb.api.grpc.Empty;
+import org.xmldb.api.grpc.HandleId;
+import org.xmldb.api.grpc.ResourceId;
+import org.xmldb.api.grpc.SystemInfo;
+import org.xmldb.api.grpc.XmlDbServiceGrpc;
+
+import io.grpc.stub.StreamObserver;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Runs many concurrent blocking sessions on virtual threads and verifies using JFR that no carrier
+ * thread gets pinned by the client.
+ */
+class VirtualThreadPinningTest {
+  static final int SESSIONS = 1_000;
+  static final int RESOURCES = 10;
+  static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+  InProcessClient inProcess;
+  RemoteClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    final Properties info = new Properties();
+    info.setProperty(EXECUTOR, EXECUTOR_VIRTUAL);
+    inProcess = InProcessClient.start(new TestService(), info,
+        server -> server.executor(Executors.newVirtualThreadPerTaskExecutor()));
+    client = inProcess.client();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    inProcess.close();
+  }
+
+  @Test
+  void blockingCallsDoNotPinCarrierThreads() throws Exception {
+    final List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+    try (RecordingStream recording = new RecordingStream()) {
+      recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      recording.onEvent(PINNED_EVENT, pinned::add);
+      recording.startAsync();
+
+      final HandleId handle = HandleId.newBuilder().setLeastSignificantBits(1).build();
+      final List<Future<Integer>> sessions = new ArrayList<>();
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < SESSIONS; i++) {
+          sessions.add(executor.submit(() -> {
+            client.systemInfo();
+            int count = Math.toIntExact(client.resourceCount(handle).getCount());
+            try (ClientCallIterator<ResourceId> ids = client.listResources(handle)) {
+              while (ids.hasNext()) {
+                ids.next();
+                count--;
+              }
+            }
+            return count;
+          }));
+        }
+      }
+      for (Future<Integer> session : sessions) {
+        assertThat(session.get()).isZero();
+      }
+      recording.stop();
+    }
+    assertThat(pinned).as("pinned virtual threads: %s", pinned).isEmpty();
+  }
+
+  static final class TestService extends XmlDbServiceGrpc.XmlDbServiceImplBase {
+    @Override
+    public void systemInfo(Empty request, StreamObserver<SystemInfo> responseObserver) {
+      responseObserver.onNext(SystemInfo.newBuilder().setSystemVersion("test").build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void resourceCount(HandleId request, StreamObserver<Count> responseObserver) {
+      responseObserver.onNext(Count.newBuilder().setCount(RESOURCES).build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void listResources(HandleId request, StreamObserver<ResourceId> responseObserver) {
+      for (int i = 0; i < RESOURCES; i++) {
+        responseObserver.onNext(ResourceId.newBuilder().setCollectionId(request)
+            .setResourceId("resource-%d".formatted(i)).build());
+      }
+      responseObserver.onCompleted();
+    }
+  }
+}